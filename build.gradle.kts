@@ -21,6 +21,10 @@ dependencies {
         exclude(group = "dev.emortal.api", module = "common-proto-sdk")
     }
     api("dev.emortal.api:common-proto-sdk:b05808d")
+
+    testImplementation(platform("org.junit:junit-bom:5.10.2"))
+    testImplementation("org.junit.jupiter:junit-jupiter")
+    testRuntimeOnly("org.junit.platform:junit-platform-launcher")
 }
 
 java {
@@ -29,6 +33,10 @@ java {
     }
 }
 
+tasks.test {
+    useJUnitPlatform()
+}
+
 publishing {
     repositories {
         maven {
@@ -13,13 +13,18 @@ import dev.emortal.minestom.gamesdk.config.GameSdkConfig;
 import dev.emortal.minestom.gamesdk.game.GameProvider;
 import dev.emortal.minestom.gamesdk.internal.AgonesGameListener;
 import dev.emortal.minestom.gamesdk.internal.GameManager;
+import dev.emortal.minestom.gamesdk.internal.MessageOutbox;
 import dev.emortal.minestom.gamesdk.internal.listener.AgonesGameStatusListener;
 import dev.emortal.minestom.gamesdk.internal.GameTracker;
+import dev.emortal.minestom.gamesdk.tracker.KafkaGameTrackerSink;
+import dev.emortal.minestom.gamesdk.util.GamePlayerDataRepository;
 import net.minestom.server.MinecraftServer;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.List;
 import java.util.function.Function;
 import java.util.function.Supplier;
 
@@ -104,19 +109,44 @@ final class MinestomGameServerImpl implements MinestomGameServer {
 
             GameManager gameManager = new GameManager(config);
             if (!TEST_MODE && hasAgones) {
-                gameManager.addGameStatusListener(new AgonesGameStatusListener(gameManager, kubernetesModule));
+                AgonesGameStatusListener agonesListener = new AgonesGameStatusListener(gameManager, kubernetesModule);
+                gameManager.addGameStatusListener(agonesListener);
+                MinecraftServer.getSchedulerManager().buildShutdownTask(agonesListener::shutdown);
             }
 
+            MessageOutbox kafkaOutbox = null;
             if (messaging != null) {
-                GameTracker gameTracker = new GameTracker(messaging, config);
-                gameManager.addGameStatusListener(gameTracker);
+                kafkaOutbox = new MessageOutbox("kafka", new KafkaGameTrackerSink(messaging.getKafkaProducer()));
+                new AgonesGameListener(gameManager, config, messaging, kafkaOutbox);
+            }
 
-                new AgonesGameListener(gameManager, config, messaging);
+            // A configured sink gets its own outbox, otherwise the tracker publishes to Kafka if it's available
+            MessageOutbox trackerOutbox = config.trackerSink() != null ? new MessageOutbox("tracker", config.trackerSink()) : kafkaOutbox;
+            if (trackerOutbox != null) {
+                GameTracker gameTracker = new GameTracker(gameManager, trackerOutbox, config);
+                gameManager.addGameStatusListener(gameTracker);
             }
 
+            startOutbox(kafkaOutbox);
+            if (trackerOutbox != kafkaOutbox) startOutbox(trackerOutbox);
+
+            // Every repository with a writer, not just the configured ones, including any created after this
+            MinecraftServer.getSchedulerManager().buildShutdownTask(() -> {
+                for (GamePlayerDataRepository<?> repository : List.copyOf(GamePlayerDataRepository.getWritableRepositories())) {
+                    repository.close();
+                }
+            });
+
             MinecraftServer.getCommandManager().register(new GameSdkCommand(gameManager));
 
             return new MinestomGameServerImpl(gameManager, server);
         }
+
+        private static void startOutbox(@Nullable MessageOutbox outbox) {
+            if (outbox == null) return;
+
+            outbox.start();
+            MinecraftServer.getSchedulerManager().buildShutdownTask(outbox::shutdown);
+        }
     }
 }
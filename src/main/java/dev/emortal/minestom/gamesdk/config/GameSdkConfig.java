@@ -1,18 +1,50 @@
 package dev.emortal.minestom.gamesdk.config;
 
 import dev.emortal.minestom.gamesdk.game.GameCreator;
+import dev.emortal.minestom.gamesdk.game.PreparedGameCreator;
 import dev.emortal.minestom.gamesdk.internal.GameTracker;
+import dev.emortal.minestom.gamesdk.tracker.GameTrackerSink;
+import dev.emortal.minestom.gamesdk.util.GamePlayerDataRepository;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * The configuration that the game manager will use to create and manage games.
  *
- * @param minPlayers  the minimum players required for a game to start
- * @param gameCreator a function that can be called to create a game instance
+ * @param minPlayers               the minimum players required for a game to start
+ * @param startTimeout             the time, in seconds, that a game waits for all its players to join before it is
+ *                                 started anyway, if it has the minimum players, or finished
+ * @param adaptiveTrackingInterval whether the minimum tracking interval is stretched (up to the maximum) as the
+ *                                 server's load increases. Disabled by default.
+ * @param trackingBatchWindow      the time, in milliseconds, that game updates are collected for before they are published together
+ * @param trackingKeyframeInterval the number of delta game updates sent between each full update, or 0 to always send
+ *                                 full updates. Consumers must understand the delta format to enable this.
+ * @param trackerSink              where game tracker messages are published to, or null to publish them to Kafka when
+ *                                 messaging is available
+ * @param warmPoolSize             the number of games to prepare ahead of time for each map that matches are created for,
+ *                                 or 0 to disable the warm pool. The game creator must be a {@link PreparedGameCreator}.
+ * @param warmPoolIdleTimeout      the time, in seconds, after which a map's prepared games are discarded if no match has
+ *                                 been created for it
+ * @param warmPoolMaps             the maps to prepare games for as soon as the server starts, rather than after the first
+ *                                 match for them. Use an empty string for matches without a map. These maps are kept
+ *                                 warm even when they're idle.
+ * @param playerDataRepositories   the repositories to prefetch the players' data into when a match is created. Every
+ *                                 repository with a writer is flushed when a game finishes, whether it's in here or not.
+ * @param gameCreator              a function that can be called to create a game instance
  */
-public record GameSdkConfig(int minPlayers, int minTrackingInterval, int maxTrackingInterval,
+public record GameSdkConfig(int minPlayers, int startTimeout, int minTrackingInterval, int maxTrackingInterval,
+                            boolean adaptiveTrackingInterval, int trackingBatchWindow, int trackingKeyframeInterval,
+                            @Nullable GameTrackerSink trackerSink, int warmPoolSize, int warmPoolIdleTimeout,
+                            @NotNull List<String> warmPoolMaps, @NotNull List<GamePlayerDataRepository<?>> playerDataRepositories,
                             FinishBehaviour finishBehaviour, @NotNull GameCreator gameCreator) {
 
+    public static final int DEFAULT_START_TIMEOUT = 3;
+    public static final int DEFAULT_WARM_POOL_SIZE = 0; // disabled
+    public static final int DEFAULT_WARM_POOL_IDLE_TIMEOUT = 300; // 5 minutes
+
     public static @NotNull Builder builder() {
         return new BuilderImpl();
     }
@@ -23,10 +55,28 @@ public record GameSdkConfig(int minPlayers, int minTrackingInterval, int maxTrac
 
         interface GameCreatorStep {
 
+            @NotNull GameCreatorStep startTimeout(int timeout);
+
             @NotNull GameCreatorStep minTrackingInterval(int interval);
 
             @NotNull GameCreatorStep maxTrackingInterval(int interval);
 
+            @NotNull GameCreatorStep adaptiveTrackingInterval(boolean adaptive);
+
+            @NotNull GameCreatorStep trackingBatchWindow(int window);
+
+            @NotNull GameCreatorStep trackingKeyframeInterval(int interval);
+
+            @NotNull GameCreatorStep trackerSink(@NotNull GameTrackerSink sink);
+
+            @NotNull GameCreatorStep warmPoolSize(int size);
+
+            @NotNull GameCreatorStep warmPoolIdleTimeout(int timeout);
+
+            @NotNull GameCreatorStep warmPoolMaps(@NotNull String... mapIds);
+
+            @NotNull GameCreatorStep playerDataRepository(@NotNull GamePlayerDataRepository<?> repository);
+
             @NotNull GameCreatorStep finishBehaviour(FinishBehaviour finishBehaviour);
 
             @NotNull EndStep gameCreator(@NotNull GameCreator creator);
@@ -41,8 +91,17 @@ public record GameSdkConfig(int minPlayers, int minTrackingInterval, int maxTrac
     private static final class BuilderImpl implements Builder, Builder.GameCreatorStep, Builder.EndStep {
 
         private int minPlayers;
+        private int startTimeout = DEFAULT_START_TIMEOUT;
         private int minTrackingInterval = GameTracker.DEFAULT_MIN_UPDATE_INTERVAL;
         private int maxTrackingInterval = GameTracker.DEFAULT_MAX_UPDATE_INTERVAL;
+        private boolean adaptiveTrackingInterval = GameTracker.DEFAULT_ADAPTIVE_INTERVAL;
+        private int trackingBatchWindow = GameTracker.DEFAULT_BATCH_WINDOW;
+        private int trackingKeyframeInterval = GameTracker.DEFAULT_KEYFRAME_INTERVAL;
+        private @Nullable GameTrackerSink trackerSink;
+        private int warmPoolSize = DEFAULT_WARM_POOL_SIZE;
+        private int warmPoolIdleTimeout = DEFAULT_WARM_POOL_IDLE_TIMEOUT;
+        private final List<String> warmPoolMaps = new ArrayList<>();
+        private final List<GamePlayerDataRepository<?>> playerDataRepositories = new ArrayList<>();
         private FinishBehaviour finishBehaviour = FinishBehaviour.LOBBY;
         private GameCreator gameCreator;
 
@@ -52,6 +111,12 @@ public record GameSdkConfig(int minPlayers, int minTrackingInterval, int maxTrac
             return this;
         }
 
+        @Override
+        public @NotNull GameCreatorStep startTimeout(int timeout) {
+            this.startTimeout = timeout;
+            return this;
+        }
+
         @Override
         public @NotNull GameCreatorStep minTrackingInterval(int interval) {
             this.minTrackingInterval = interval;
@@ -64,6 +129,54 @@ public record GameSdkConfig(int minPlayers, int minTrackingInterval, int maxTrac
             return this;
         }
 
+        @Override
+        public @NotNull GameCreatorStep adaptiveTrackingInterval(boolean adaptive) {
+            this.adaptiveTrackingInterval = adaptive;
+            return this;
+        }
+
+        @Override
+        public @NotNull GameCreatorStep trackingBatchWindow(int window) {
+            this.trackingBatchWindow = window;
+            return this;
+        }
+
+        @Override
+        public @NotNull GameCreatorStep trackingKeyframeInterval(int interval) {
+            this.trackingKeyframeInterval = interval;
+            return this;
+        }
+
+        @Override
+        public @NotNull GameCreatorStep trackerSink(@NotNull GameTrackerSink sink) {
+            this.trackerSink = sink;
+            return this;
+        }
+
+        @Override
+        public @NotNull GameCreatorStep warmPoolSize(int size) {
+            this.warmPoolSize = size;
+            return this;
+        }
+
+        @Override
+        public @NotNull GameCreatorStep warmPoolIdleTimeout(int timeout) {
+            this.warmPoolIdleTimeout = timeout;
+            return this;
+        }
+
+        @Override
+        public @NotNull GameCreatorStep warmPoolMaps(@NotNull String... mapIds) {
+            this.warmPoolMaps.addAll(List.of(mapIds));
+            return this;
+        }
+
+        @Override
+        public @NotNull GameCreatorStep playerDataRepository(@NotNull GamePlayerDataRepository<?> repository) {
+            this.playerDataRepositories.add(repository);
+            return this;
+        }
+
         @Override
         public @NotNull GameCreatorStep finishBehaviour(FinishBehaviour finishBehaviour) {
             this.finishBehaviour = finishBehaviour;
@@ -78,8 +191,10 @@ public record GameSdkConfig(int minPlayers, int minTrackingInterval, int maxTrac
 
         @Override
         public @NotNull GameSdkConfig build() {
-            return new GameSdkConfig(this.minPlayers, this.minTrackingInterval, this.maxTrackingInterval,
-                    this.finishBehaviour, this.gameCreator);
+            return new GameSdkConfig(this.minPlayers, this.startTimeout, this.minTrackingInterval, this.maxTrackingInterval,
+                    this.adaptiveTrackingInterval, this.trackingBatchWindow, this.trackingKeyframeInterval, this.trackerSink,
+                    this.warmPoolSize, this.warmPoolIdleTimeout, List.copyOf(this.warmPoolMaps),
+                    List.copyOf(this.playerDataRepositories), this.finishBehaviour, this.gameCreator);
         }
     }
 
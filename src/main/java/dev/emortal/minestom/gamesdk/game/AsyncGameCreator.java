@@ -0,0 +1,30 @@
+package dev.emortal.minestom.gamesdk.game;
+
+import dev.emortal.minestom.gamesdk.config.GameCreationInfo;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A game creator that creates games asynchronously, for games that have to load things (e.g. worlds) before they can be
+ * created.
+ *
+ * <p>
+ * When a match is created, the SDK waits for the future without blocking, so other matches can be taken in while the
+ * game is being created.
+ *
+ * <p>
+ * This can be combined with the warm pool by also implementing {@link PreparedGameCreator}. Games that are created from
+ * prepared resources are created straight away, and games for which nothing was prepared are created with
+ * {@link #createGameAsync(GameCreationInfo)}.
+ */
+@FunctionalInterface
+public interface AsyncGameCreator extends GameCreator {
+
+    @NotNull CompletableFuture<Game> createGameAsync(@NotNull GameCreationInfo info);
+
+    @Override
+    default @NotNull Game createGame(@NotNull GameCreationInfo info) {
+        return this.createGameAsync(info).join();
+    }
+}
@@ -13,12 +13,15 @@ import net.minestom.server.event.Event;
 import net.minestom.server.event.EventFilter;
 import net.minestom.server.event.EventNode;
 import net.minestom.server.instance.Instance;
+import org.jetbrains.annotations.ApiStatus;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
-import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 public abstract class Game implements PacketGroupingAudience, TrackableGame {
@@ -27,9 +30,11 @@ public abstract class Game implements PacketGroupingAudience, TrackableGame {
     private final @NotNull GameCreationInfo creationInfo;
     private final @NotNull EventNode<Event> eventNode;
 
-    private final Set<Player> players = Collections.synchronizedSet(new HashSet<>());
+    private final @NotNull GamePlayerSet players = new GamePlayerSet();
+    private volatile @Nullable GameLifecycleHandler lifecycleHandler;
 
     private final @NotNull AtomicBoolean gameTrackerUpdateQueued = new AtomicBoolean(false);
+    private final @NotNull Set<String> dirtyUpdateSections = ConcurrentHashMap.newKeySet();
     // don't set this to 0, or it will recursively update tens of thousands of times because of the maxUpdateInterval
     private long lastGameTrackerUpdate = System.currentTimeMillis();
 
@@ -37,7 +42,7 @@ public abstract class Game implements PacketGroupingAudience, TrackableGame {
         this.creationInfo = creationInfo;
         this.eventNode = this.createEventNode();
 
-        this.meters.add(Gauge.builder("gamesdk.game_player_count", this, game -> game.getPlayers().size())
+        this.meters.add(Gauge.builder("gamesdk.game_player_count", this, game -> game.getPlayerSnapshot().size())
                 .tag("gameId", this.creationInfo.id())
                 .description("The amount of players currently in the game")
                 .register(Metrics.globalRegistry));
@@ -86,6 +91,11 @@ public abstract class Game implements PacketGroupingAudience, TrackableGame {
 
     public abstract @NotNull Instance getSpawningInstance(@NotNull Player player);
 
+    /**
+     * Gets the node that the game's listeners should be added to. It isn't attached to the event tree: player events
+     * are only passed to the node of the game the player is in, and all other events are passed to every game's node,
+     * with the node's filter (see {@link #createEventNode()}) deciding which of them the game handles.
+     */
     public final @NotNull EventNode<Event> getEventNode() {
         return this.eventNode;
     }
@@ -106,8 +116,47 @@ public abstract class Game implements PacketGroupingAudience, TrackableGame {
         return this.players;
     }
 
+    /**
+     * Gets an immutable snapshot of the players currently in the game, which can be read from any thread without locking.
+     *
+     * <p>
+     * A new snapshot is created every time a player joins or leaves, so two snapshots being the same instance means
+     * the players have not changed in between.
+     */
+    public final @NotNull List<Player> getPlayerSnapshot() {
+        return this.players.snapshot();
+    }
+
+    /**
+     * Binds the handler that this game's lifecycle requests are sent to. This is called by the game manager when the
+     * game is registered, and should not be called by the game.
+     */
+    @ApiStatus.Internal
+    public final void bindLifecycleHandler(@NotNull GameLifecycleHandler handler) {
+        this.lifecycleHandler = handler;
+    }
+
     public final void finish() {
-        MinecraftServer.getGlobalEventHandler().call(new GameFinishedEvent(this));
+        GameLifecycleHandler handler = this.lifecycleHandler;
+        if (handler != null) {
+            handler.finish(this);
+        } else {
+            // Not managed, so the event is the only way anything can find out about this
+            MinecraftServer.getGlobalEventHandler().call(new GameFinishedEvent(this));
+        }
+    }
+
+    /**
+     * Requests that the game tracker publishes an update for this game soon. Requests are rate limited and
+     * coalesced by the tracker, so this can be called as often as the game's state changes.
+     */
+    public final void requestTrackerUpdate() {
+        GameLifecycleHandler handler = this.lifecycleHandler;
+        if (handler != null) {
+            handler.requestTrackerUpdate(this);
+        } else {
+            MinecraftServer.getGlobalEventHandler().call(new GameUpdateRequestEvent(this));
+        }
     }
 
     public void markTrackerUpdated() {
@@ -115,6 +164,14 @@ public abstract class Game implements PacketGroupingAudience, TrackableGame {
         this.gameTrackerUpdateQueued.set(false);
     }
 
+    /**
+     * Clears the queued update flag without counting as an update, for when the tracker decided there was nothing worth
+     * sending. Later update requests are then handled again, without being held back by the min interval.
+     */
+    public void markTrackerUpdateSkipped() {
+        this.gameTrackerUpdateQueued.set(false);
+    }
+
     /**
      * Marks the game as pending an update from the tracker - it may be in progress.
      * An update should not be triggered whilst this is false, so it should always be called before updating and
@@ -131,4 +188,25 @@ public abstract class Game implements PacketGroupingAudience, TrackableGame {
     public long getLastGameTrackerUpdate() {
         return this.lastGameTrackerUpdate;
     }
+
+    /**
+     * Marks a section of the update extra data as changed, so the tracker creates it again in the next update.
+     * This only has an effect if the game returns the section from {@link #getGameUpdateSections()}.
+     */
+    public final void markUpdateSectionDirty(@NotNull String section) {
+        this.dirtyUpdateSections.add(section);
+    }
+
+    /**
+     * Clears the dirty flag of each of the given sections, returning the ones that were dirty.
+     * This is used by the tracker, and should not be called by the game.
+     */
+    public final @NotNull Set<String> takeDirtyUpdateSections(@NotNull List<String> sections) {
+        Set<String> dirty = new HashSet<>();
+        for (String section : sections) {
+            // Removing each section individually means a section marked dirty while we're doing this is never lost
+            if (this.dirtyUpdateSections.remove(section)) dirty.add(section);
+        }
+        return dirty;
+    }
 }
@@ -3,6 +3,14 @@ package dev.emortal.minestom.gamesdk.game;
 import dev.emortal.minestom.gamesdk.config.GameCreationInfo;
 import org.jetbrains.annotations.NotNull;
 
+/**
+ * Creates the game for each match.
+ *
+ * <p>
+ * Matches are taken in one at a time by default, so this is only called from one thread at a time. If the match intake
+ * concurrency is raised with {@code GAME_SDK_MATCH_INTAKE_CONCURRENCY}, this is called for several matches at once, and
+ * must be thread safe. It is never called twice at once for the same match.
+ */
 @FunctionalInterface
 public interface GameCreator {
 
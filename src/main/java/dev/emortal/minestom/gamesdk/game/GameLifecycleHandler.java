@@ -0,0 +1,20 @@
+package dev.emortal.minestom.gamesdk.game;
+
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Handles the requests a game makes about its own lifecycle, so they can be made without going through the global
+ * event handler.
+ *
+ * <p>
+ * This keeps the relationship between games and whatever manages them one way, as described in
+ * {@link GameFinishedEvent}. The game only knows that something handles these requests, not what it is.
+ */
+@ApiStatus.Internal
+public interface GameLifecycleHandler {
+
+    void requestTrackerUpdate(@NotNull Game game);
+
+    void finish(@NotNull Game game);
+}
@@ -0,0 +1,106 @@
+package dev.emortal.minestom.gamesdk.game;
+
+import net.minestom.server.entity.Player;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * The set of players in a game, which can be read from any thread without locking.
+ *
+ * Changes take a lock and republish an immutable snapshot of the players, so iterating (e.g. for every broadcast) reads
+ * the latest snapshot and can never throw a ConcurrentModificationException or block a player joining or leaving.
+ * Removing through an iterator removes the player from the set, though the iterator carries on over its snapshot.
+ * Players join and leave far less often than packets are broadcast to them, so copying on write is cheap.
+ */
+final class GamePlayerSet extends AbstractSet<Player> {
+
+    private final @NotNull Set<Player> members = ConcurrentHashMap.newKeySet();
+    private volatile @NotNull List<Player> snapshot = List.of();
+
+    @Override
+    public synchronized boolean add(@NotNull Player player) {
+        if (!this.members.add(player)) return false;
+
+        this.snapshot = List.copyOf(this.members);
+        return true;
+    }
+
+    @Override
+    public synchronized boolean remove(Object object) {
+        if (object == null || !this.members.remove(object)) return false;
+
+        this.snapshot = List.copyOf(this.members);
+        return true;
+    }
+
+    @Override
+    public synchronized void clear() {
+        this.members.clear();
+        this.snapshot = List.of();
+    }
+
+    @Override
+    public boolean contains(Object object) {
+        // ConcurrentHashMap rejects null keys, but a Set should just report that null isn't a member
+        return object != null && this.members.contains(object);
+    }
+
+    @Override
+    public @NotNull Iterator<Player> iterator() {
+        return new SnapshotIterator(this.snapshot.iterator());
+    }
+
+    @Override
+    public int size() {
+        return this.snapshot.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return this.snapshot.isEmpty();
+    }
+
+    /**
+     * Gets an immutable snapshot of the players. A new snapshot is published every time the players change, so
+     * comparing snapshots by identity shows whether the players have changed.
+     */
+    @NotNull List<Player> snapshot() {
+        return this.snapshot;
+    }
+
+    // Iterates a snapshot, but removes from the set itself, so removeIf and retainAll work as they do on other sets
+    private final class SnapshotIterator implements Iterator<Player> {
+
+        private final @NotNull Iterator<Player> snapshotIterator;
+        private @Nullable Player last;
+
+        SnapshotIterator(@NotNull Iterator<Player> snapshotIterator) {
+            this.snapshotIterator = snapshotIterator;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.snapshotIterator.hasNext();
+        }
+
+        @Override
+        public @NotNull Player next() {
+            this.last = this.snapshotIterator.next();
+            return this.last;
+        }
+
+        @Override
+        public void remove() {
+            if (this.last == null) throw new IllegalStateException("next() hasn't been called since the last remove()");
+
+            GamePlayerSet.this.remove(this.last);
+            this.last = null;
+        }
+    }
+}
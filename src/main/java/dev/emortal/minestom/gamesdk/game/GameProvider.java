@@ -4,9 +4,15 @@ import net.minestom.server.entity.Player;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.UUID;
+
 public interface GameProvider {
 
     @Nullable Game findGame(@NotNull Player player);
 
+    @Nullable Game findGame(@NotNull UUID playerId);
+
+    @Nullable Game getGame(@NotNull String matchId);
+
     int getGameCount();
 }
@@ -1,12 +1,22 @@
 package dev.emortal.minestom.gamesdk.game;
 
-import net.minestom.server.MinecraftServer;
 import net.minestom.server.event.Event;
 import org.jetbrains.annotations.NotNull;
 
+/**
+ * Called when a game requests a game tracker update.
+ *
+ * <p>
+ * The tracker is notified directly by {@link Game#requestTrackerUpdate()}, which then calls this event for anything else
+ * that wants to know about update requests, if anything is listening for it. Calling this event yourself doesn't request
+ * an update, so use {@link #trigger(Game)} or {@link Game#requestTrackerUpdate()} instead.
+ */
 public record GameUpdateRequestEvent(@NotNull Game game) implements Event {
 
+    /**
+     * Equivalent to {@link Game#requestTrackerUpdate()}, kept for games that request updates this way.
+     */
     public static void trigger(@NotNull Game game) {
-        MinecraftServer.getGlobalEventHandler().call(new GameUpdateRequestEvent(game));
+        game.requestTrackerUpdate();
     }
 }
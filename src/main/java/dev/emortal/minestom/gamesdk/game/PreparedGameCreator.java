@@ -0,0 +1,41 @@
+package dev.emortal.minestom.gamesdk.game;
+
+import dev.emortal.minestom.gamesdk.config.GameCreationInfo;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A game creator that can prepare the expensive parts of a game, such as its instances and worlds, before the match it
+ * is for is known.
+ *
+ * <p>
+ * When the warm pool is enabled in the config, the SDK prepares resources ahead of time for the maps matches have been
+ * created for, and creates games from them when matches arrive, so loading doesn't happen after players are matched.
+ *
+ * @param <R> the type of the prepared resources
+ */
+public interface PreparedGameCreator<R> extends GameCreator {
+
+    /**
+     * Prepares the resources for a game on the given map. This is called off the tick thread, and may block.
+     *
+     * @param mapId the map the game will be played on, or null if matches for this mode don't have a map
+     */
+    @NotNull R prepare(@Nullable String mapId);
+
+    /**
+     * Creates a game from resources previously prepared for the same map.
+     */
+    @NotNull Game createGame(@NotNull GameCreationInfo info, @NotNull R prepared);
+
+    /**
+     * Called when prepared resources are evicted from the pool without having been used, so they can be released.
+     */
+    default void discard(@NotNull R prepared) {
+    }
+
+    @Override
+    default @NotNull Game createGame(@NotNull GameCreationInfo info) {
+        return this.createGame(info, this.prepare(info.mapId()));
+    }
+}
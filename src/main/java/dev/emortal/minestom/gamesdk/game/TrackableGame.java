@@ -15,6 +15,29 @@ public interface TrackableGame {
         return List.of();
     }
 
+    /**
+     * Gets the names of the sections that make up this game's update extra data, for games that track which parts of
+     * their data have changed.
+     *
+     * <p>
+     * Returning any sections opts the game in to dirty tracking. The tracker will then call
+     * {@link #createGameUpdateSection(String)} for each section the game has marked dirty with
+     * {@link Game#markUpdateSectionDirty(String)}, reuse the last data it sent for the others, and skip the update
+     * entirely if no sections are dirty and the players haven't changed.
+     * {@link #createGameUpdateExtraData()} is not called for games that return sections.
+     */
+    default @NotNull List<String> getGameUpdateSections() {
+        return List.of();
+    }
+
+    /**
+     * Creates the update extra data for one of the sections returned by {@link #getGameUpdateSections()}. Games that
+     * return sections must override this.
+     */
+    default @NotNull Message createGameUpdateSection(@NotNull String section) {
+        throw new UnsupportedOperationException("Game declares update sections but does not create them");
+    }
+
     default @NotNull List<? extends Message> createGameFinishExtraData() {
         return List.of();
     }
@@ -0,0 +1,65 @@
+package dev.emortal.minestom.gamesdk.internal;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.function.DoubleSupplier;
+import java.util.function.IntSupplier;
+
+/*
+ * Works out the minimum time between a game's tracker updates from how loaded the server is.
+ *
+ * The configured minimum interval is stretched by the square root of the amount of games running, so the total rate of
+ * updates from the server grows with the square root of the games, rather than linearly. On top of that, it is stretched
+ * further when the outbox is filling up (up to 4x when it's full) or the tick loop is busy (2x when ticks take their whole
+ * budget, growing with it beyond that), whichever is worse. The result is kept between the configured minimum and
+ * maximum intervals, as updates can't be less frequent than the heartbeat sent every maximum interval anyway.
+ *
+ * The interval is recalculated periodically rather than on every request, so that it's cheap to read.
+ */
+final class AdaptiveTrackingInterval {
+
+    private final long minInterval;
+    private final long maxInterval;
+    private final @NotNull IntSupplier gameCount;
+    private final @NotNull DoubleSupplier outboxFill;
+    private final @NotNull ServerTickMonitor tickMonitor;
+
+    private volatile long currentInterval;
+
+    /**
+     * @param minInterval the configured minimum interval, in milliseconds
+     * @param maxInterval the configured maximum interval, in milliseconds
+     */
+    AdaptiveTrackingInterval(long minInterval, long maxInterval, @NotNull IntSupplier gameCount,
+                             @NotNull DoubleSupplier outboxFill, @NotNull ServerTickMonitor tickMonitor) {
+        this.minInterval = minInterval;
+        this.maxInterval = Math.max(maxInterval, minInterval);
+        this.gameCount = gameCount;
+        this.outboxFill = outboxFill;
+        this.tickMonitor = tickMonitor;
+        this.currentInterval = minInterval;
+
+        Gauge.builder("gamesdk.tracker.min_interval", this, policy -> policy.getInterval() / 1000.0)
+                .baseUnit("seconds")
+                .description("The current minimum time between updates for a game, adjusted for the server's load")
+                .register(Metrics.globalRegistry);
+    }
+
+    /**
+     * @return the current minimum interval, in milliseconds
+     */
+    long getInterval() {
+        return this.currentInterval;
+    }
+
+    void recalculate() {
+        double gameScale = Math.sqrt(Math.max(this.gameCount.getAsInt(), 1));
+        double outboxPressure = 1 + 3 * Math.clamp(this.outboxFill.getAsDouble(), 0, 1);
+        double tickPressure = Math.max(1, 2 * this.tickMonitor.getTickLoad());
+
+        double interval = this.minInterval * gameScale * Math.max(outboxPressure, tickPressure);
+        this.currentInterval = (long) Math.clamp(interval, this.minInterval, this.maxInterval);
+    }
+}
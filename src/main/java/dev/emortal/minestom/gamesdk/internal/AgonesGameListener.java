@@ -4,50 +4,178 @@ import dev.emortal.api.message.gamesdk.GameReadyMessage;
 import dev.emortal.api.message.matchmaker.MatchCreatedMessage;
 import dev.emortal.api.model.matchmaker.Match;
 import dev.emortal.api.model.matchmaker.Ticket;
-import dev.emortal.api.utils.kafka.FriendlyKafkaProducer;
 import dev.emortal.minestom.core.Environment;
 import dev.emortal.minestom.core.module.messaging.MessagingModule;
 import dev.emortal.minestom.gamesdk.config.GameCreationInfo;
 import dev.emortal.minestom.gamesdk.config.GameSdkConfig;
 import dev.emortal.minestom.gamesdk.game.Game;
+import dev.emortal.minestom.gamesdk.util.GamePlayerDataRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
 import net.minestom.server.MinecraftServer;
 import net.minestom.server.entity.Player;
 import net.minestom.server.network.ConnectionManager;
 import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.util.HashSet;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 public final class AgonesGameListener {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AgonesGameListener.class);
+
+    // How many matches can be taken in at once, and how many more can wait for their turn. Matches are taken in one at a
+    // time by default, as game creators and the player moves aren't safe to run concurrently unless the game says so.
+    private static final int INTAKE_CONCURRENCY = SdkEnvironment.getInt("GAME_SDK_MATCH_INTAKE_CONCURRENCY", 1);
+    private static final int INTAKE_QUEUE_CAPACITY = SdkEnvironment.getInt("GAME_SDK_MATCH_INTAKE_QUEUE_CAPACITY", 64);
+    // Every created match is checked against this, so look it up once
+    private static final String SERVER_ID = Environment.getHostname();
 
     private final @NotNull GameManager gameManager;
     private final @NotNull GameSdkConfig config;
-    private final @NotNull FriendlyKafkaProducer kafkaProducer;
-
-    public AgonesGameListener(@NotNull GameManager gameManager, @NotNull GameSdkConfig config, @NotNull MessagingModule messaging) {
+    private final @NotNull MessageOutbox outbox;
+    private final @NotNull PreGameDispatcher preGameDispatcher;
+
+    private final @NotNull ExecutorService intakeExecutor;
+    // The matches that have been taken in, but whose game hasn't been registered yet, so duplicates can be caught
+    private final @NotNull Set<String> matchesInProgress = ConcurrentHashMap.newKeySet();
+
+    private final @NotNull Counter filteredCounter;
+    private final @NotNull Counter processedCounter;
+    private final @NotNull Timer queuedTimer;
+    private final @NotNull Timer createTimer;
+    private final @NotNull Timer moveTimer;
+    private final @NotNull Timer totalTimer;
+
+    public AgonesGameListener(@NotNull GameManager gameManager, @NotNull GameSdkConfig config, @NotNull MessagingModule messaging,
+                              @NotNull MessageOutbox outbox) {
         this.gameManager = gameManager;
         this.config = config;
-        this.kafkaProducer = messaging.getKafkaProducer();
+        this.outbox = outbox;
+        this.preGameDispatcher = new PreGameDispatcher(gameManager, config);
+
+        BlockingQueue<Runnable> intakeQueue = new ArrayBlockingQueue<>(INTAKE_QUEUE_CAPACITY);
+        // When the queue is full, the messaging thread waits for room, which slows consumption down to what we can handle.
+        // It doesn't take the match in itself, as that would run alongside the intake threads.
+        this.intakeExecutor = new ThreadPoolExecutor(INTAKE_CONCURRENCY, INTAKE_CONCURRENCY, 0, TimeUnit.MILLISECONDS, intakeQueue,
+                Thread.ofVirtual().name("match-intake-", 0).factory(), AgonesGameListener::waitForRoom);
+
+        Gauge.builder("gamesdk.match_intake.queue_depth", intakeQueue, BlockingQueue::size)
+                .description("The amount of created matches waiting to be taken in")
+                .register(Metrics.globalRegistry);
+        Gauge.builder("gamesdk.match_intake.in_progress", this.matchesInProgress, Set::size)
+                .description("The amount of matches whose games are being created")
+                .register(Metrics.globalRegistry);
+        this.filteredCounter = Counter.builder("gamesdk.match_intake.messages")
+                .tag("result", "filtered")
+                .description("The amount of match created messages received, by whether the match was for this server")
+                .register(Metrics.globalRegistry);
+        this.processedCounter = Counter.builder("gamesdk.match_intake.messages")
+                .tag("result", "processed")
+                .description("The amount of match created messages received, by whether the match was for this server")
+                .register(Metrics.globalRegistry);
+        this.queuedTimer = this.createStageTimer("queued");
+        this.createTimer = this.createStageTimer("create");
+        this.moveTimer = this.createStageTimer("move");
+        this.totalTimer = this.createStageTimer("total");
+
+        outbox.registerMessageType(GameReadyMessage.getDefaultInstance());
+
+        messaging.addListener(MatchCreatedMessage.class, message -> this.submitMatch(message.getMatch()));
+    }
 
-        messaging.addListener(MatchCreatedMessage.class, message -> this.onMatchCreated(message.getMatch()));
+    private @NotNull Timer createStageTimer(@NotNull String stage) {
+        return Timer.builder("gamesdk.match_intake.stage_duration")
+                .tag("stage", stage)
+                .description("The time taken by each stage of taking in a created match")
+                .register(Metrics.globalRegistry);
     }
 
-    private void onMatchCreated(@NotNull Match match) {
-        if (!this.isGameForThisServer(match)) return;
+    private static void waitForRoom(@NotNull Runnable task, @NotNull ThreadPoolExecutor executor) {
+        try {
+            executor.getQueue().put(task);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted while waiting for room in the match intake queue", exception);
+        }
+    }
 
-        GameCreationInfo creationInfo = this.createInfo(match);
-        Game game = this.gameManager.createGame(creationInfo);
+    private void submitMatch(@NotNull Match match) {
+        // Filter on the messaging thread, as it's cheap and most matches aren't for this server.
+        // Nothing else in the match (e.g. the tickets) is touched until we know it's for us.
+        if (!this.isGameForThisServer(match)) {
+            this.filteredCounter.increment();
+            return;
+        }
+        this.processedCounter.increment();
 
-        new PreGameInitializer(this.gameManager, this.config, game);
+        long receivedTime = System.nanoTime();
+        this.intakeExecutor.execute(() -> {
+            this.queuedTimer.record(System.nanoTime() - receivedTime, TimeUnit.NANOSECONDS);
+            this.onMatchCreated(match, receivedTime);
+        });
+    }
+
+    private void onMatchCreated(@NotNull Match match, long receivedTime) {
+        // Marked as in progress before checking for a registered game, as the game is registered before it stops being
+        // in progress, so a duplicate is always caught by one check or the other
+        if (!this.matchesInProgress.add(match.getId())) {
+            LOGGER.warn("Ignoring duplicate match created message for match {}", match.getId());
+            return;
+        }
+        if (this.gameManager.getGame(match.getId()) != null) {
+            this.matchesInProgress.remove(match.getId());
+            LOGGER.warn("Ignoring duplicate match created message for match {}", match.getId());
+            return;
+        }
 
-        this.movePlayersOnThisServer(game, creationInfo.playerIds());
-        this.notifyGameReady(match);
+        GameCreationInfo creationInfo = this.createInfo(match);
+        this.gameManager.getJoinLatencyTracer().traceMatch(creationInfo, receivedTime);
+        // Start loading the players' data now, so it's ready by the time they spawn
+        for (GamePlayerDataRepository<?> repository : this.config.playerDataRepositories()) {
+            repository.prefetch(creationInfo.playerIds());
+        }
+        long createStart = System.nanoTime();
+
+        // Asynchronous creators complete on their own threads, so the players are moved back on the intake threads,
+        // keeping the moves in the order the matches were taken in
+        this.gameManager.createGameAsync(creationInfo)
+                .thenComposeAsync(game -> {
+                    this.createTimer.record(System.nanoTime() - createStart, TimeUnit.NANOSECONDS);
+
+                    this.preGameDispatcher.addGame(game);
+
+                    long moveStart = System.nanoTime();
+                    return this.movePlayersOnThisServer(game, creationInfo.playerIds())
+                            .thenRun(() -> this.moveTimer.record(System.nanoTime() - moveStart, TimeUnit.NANOSECONDS));
+                }, this.intakeExecutor)
+                .whenComplete((ignored, exception) -> {
+                    this.matchesInProgress.remove(match.getId());
+                    if (exception != null) {
+                        this.gameManager.getJoinLatencyTracer().discard(match.getId());
+                        LOGGER.error("Failed to create game for match {}", match.getId(), exception);
+                        return;
+                    }
+
+                    this.notifyGameReady(match);
+                    this.totalTimer.record(System.nanoTime() - receivedTime, TimeUnit.NANOSECONDS);
+                });
     }
 
     private boolean isGameForThisServer(@NotNull Match match) {
-        return match.getAssignment().getServerId().equals(Environment.getHostname());
+        return match.getAssignment().getServerId().equals(SERVER_ID);
     }
 
     private @NotNull GameCreationInfo createInfo(@NotNull Match match) {
@@ -63,31 +191,34 @@ public final class AgonesGameListener {
     }
 
     private void notifyGameReady(@NotNull Match match) {
-        this.kafkaProducer.produceAndForget(GameReadyMessage.newBuilder().setMatch(match).build());
+        this.outbox.send(GameReadyMessage.newBuilder().setMatch(match).build());
     }
 
-    private void movePlayersOnThisServer(@NotNull Game newGame, @NotNull Set<UUID> playerIds) {
+    /**
+     * Moves the players in the match that are already on this server (e.g. because they requeued) into the new game.
+     *
+     * @return a future that completes when all the players have been moved
+     */
+    private @NotNull CompletableFuture<Void> movePlayersOnThisServer(@NotNull Game newGame, @NotNull Set<UUID> playerIds) {
         ConnectionManager connectionManager = MinecraftServer.getConnectionManager();
 
         Set<CompletableFuture<Void>> futures = new HashSet<>();
-        int i = 0;
 
         for (UUID playerId : playerIds) {
             Player player = connectionManager.getOnlinePlayerByUuid(playerId);
             if (player == null) continue;
 
             // The old game will be null if the player is queued when the game is finishing. See REQUEUE logic
-            Game oldGame = this.gameManager.findGame(player);
-            if (oldGame != null) GamePlayerTracker.removePlayer(oldGame, player);
+            Game oldGame = this.gameManager.findGame(playerId);
+            if (oldGame != null) this.gameManager.getPlayerTracker().removePlayer(oldGame, player);
 
-            GamePlayerTracker.addPlayer(newGame, player);
+            this.gameManager.addReservedPlayer(newGame, player);
 
-            // Increment after using the index
             futures.add(player.setInstance(newGame.getSpawningInstance(player)));
             player.respawn();
         }
 
-        if (futures.isEmpty()) return;
-        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+        if (futures.isEmpty()) return CompletableFuture.completedFuture(null);
+        return CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new));
     }
 }
@@ -0,0 +1,175 @@
+package dev.emortal.minestom.gamesdk.internal;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * A hashed timing wheel, for scheduling lots of deadlines that are frequently moved or cancelled.
+ *
+ * Time is split into ticks, and each deadline is placed in the bucket for the tick it expires on, along with how many
+ * full turns of the wheel are left before then. Scheduling, rescheduling and cancelling are all O(1) and don't allocate,
+ * as deadlines are reused intrusive list nodes, unlike a scheduled executor, which allocates a new future for every
+ * schedule and has to maintain a heap.
+ *
+ * The wheel doesn't have a thread of its own. Whatever owns it must call advance regularly (at least once a tick),
+ * and expired deadlines are run on that thread. Deadlines fire up to one tick late, but never early.
+ */
+final class DeadlineWheel {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DeadlineWheel.class);
+
+    private final long tickMillis;
+    private final long startTime;
+    private final Deadline[] buckets;
+    private final int mask;
+
+    // The next tick that hasn't been processed yet
+    private long currentTick = 0;
+    private int size = 0;
+
+    private final @NotNull Timer latenessTimer;
+
+    /**
+     * @param name       the name used to tag this wheel's metrics
+     * @param tickMillis the resolution of the wheel
+     * @param wheelSize  the number of buckets, which must be a power of two
+     */
+    DeadlineWheel(@NotNull String name, long tickMillis, int wheelSize) {
+        if (Integer.bitCount(wheelSize) != 1) throw new IllegalArgumentException("Wheel size must be a power of two");
+
+        this.tickMillis = tickMillis;
+        this.startTime = System.currentTimeMillis();
+        this.buckets = new Deadline[wheelSize];
+        this.mask = wheelSize - 1;
+
+        Gauge.builder("gamesdk.deadline_wheel.size", this, DeadlineWheel::size)
+                .tag("wheel", name)
+                .description("The amount of deadlines currently scheduled")
+                .register(Metrics.globalRegistry);
+        this.latenessTimer = Timer.builder("gamesdk.deadline_wheel.lateness")
+                .tag("wheel", name)
+                .description("How long after their deadline scheduled tasks were run")
+                .register(Metrics.globalRegistry);
+    }
+
+    /**
+     * Schedules the deadline to expire at the given time, moving it if it is already scheduled.
+     */
+    synchronized void schedule(@NotNull Deadline deadline, long time) {
+        if (deadline.isScheduled()) this.unlink(deadline);
+
+        long tick = Math.max(Math.ceilDiv(time - this.startTime, this.tickMillis), this.currentTick);
+        deadline.time = time;
+        deadline.remainingRounds = (tick - this.currentTick) / this.buckets.length;
+        this.link(deadline, (int) (tick & this.mask));
+    }
+
+    /**
+     * @return true if the deadline was scheduled and has been cancelled
+     */
+    synchronized boolean cancel(@NotNull Deadline deadline) {
+        if (!deadline.isScheduled()) return false;
+
+        this.unlink(deadline);
+        return true;
+    }
+
+    synchronized int size() {
+        return this.size;
+    }
+
+    /**
+     * Processes every tick up to the given time, and runs the tasks of the deadlines that expired.
+     */
+    void advance(long now) {
+        List<Deadline> expired = new ArrayList<>();
+
+        synchronized (this) {
+            long targetTick = (now - this.startTime) / this.tickMillis;
+            while (this.currentTick <= targetTick) {
+                this.expireBucket((int) (this.currentTick & this.mask), expired);
+                this.currentTick++;
+            }
+        }
+
+        // Run outside the lock, as tasks will often reschedule themselves or other deadlines
+        for (Deadline deadline : expired) {
+            this.latenessTimer.record(Math.max(now - deadline.time, 0), TimeUnit.MILLISECONDS);
+            try {
+                deadline.task.run();
+            } catch (Exception exception) {
+                LOGGER.error("An error occurred while running a scheduled deadline", exception);
+            }
+        }
+    }
+
+    private void expireBucket(int index, @NotNull List<Deadline> expired) {
+        Deadline deadline = this.buckets[index];
+        while (deadline != null) {
+            Deadline next = deadline.next;
+            if (deadline.remainingRounds <= 0) {
+                this.unlink(deadline);
+                expired.add(deadline);
+            } else {
+                deadline.remainingRounds--;
+            }
+            deadline = next;
+        }
+    }
+
+    private void link(@NotNull Deadline deadline, int index) {
+        Deadline head = this.buckets[index];
+        deadline.bucket = index;
+        deadline.prev = null;
+        deadline.next = head;
+        if (head != null) head.prev = deadline;
+        this.buckets[index] = deadline;
+        this.size++;
+    }
+
+    private void unlink(@NotNull Deadline deadline) {
+        if (deadline.prev != null) {
+            deadline.prev.next = deadline.next;
+        } else {
+            this.buckets[deadline.bucket] = deadline.next;
+        }
+        if (deadline.next != null) deadline.next.prev = deadline.prev;
+
+        deadline.bucket = -1;
+        deadline.prev = null;
+        deadline.next = null;
+        this.size--;
+    }
+
+    /**
+     * A task that can be scheduled on a wheel. Deadlines are meant to be created once and rescheduled as many times as
+     * needed, and must only be used with a single wheel.
+     */
+    static final class Deadline {
+
+        private final @NotNull Runnable task;
+
+        // All guarded by the wheel's lock
+        private long time;
+        private long remainingRounds;
+        private int bucket = -1;
+        private @Nullable Deadline prev;
+        private @Nullable Deadline next;
+
+        Deadline(@NotNull Runnable task) {
+            this.task = task;
+        }
+
+        private boolean isScheduled() {
+            return this.bucket != -1;
+        }
+    }
+}
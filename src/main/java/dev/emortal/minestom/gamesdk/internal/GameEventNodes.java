@@ -8,7 +8,7 @@ import org.jetbrains.annotations.NotNull;
 final class GameEventNodes {
     // The event node used by the game manager to listen for events.
     static final @NotNull EventNode<Event> GAME_MANAGER = EventNode.all("game-manager");
-    // The event node that is the parent of all the game event nodes, for an easy tree view when looking for game nodes.
+    // The event node that routes events to the game event nodes. Game nodes are not children of it, see GameEventRouter.
     static final @NotNull EventNode<Event> GAMES = EventNode.all("games");
     static final @NotNull EventNode<Event> PRE_GAME = EventNode.all("pre-game");
 
@@ -0,0 +1,58 @@
+package dev.emortal.minestom.gamesdk.internal;
+
+import dev.emortal.minestom.gamesdk.game.Game;
+import net.minestom.server.event.Event;
+import net.minestom.server.event.EventNode;
+import net.minestom.server.event.trait.PlayerEvent;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * Game event nodes are not attached to the event tree. If they were, every player event would be tested against
+ * every game's filter, and every game being added or removed would invalidate the listener caches of the parent node.
+ *
+ * Instead, this routes player events directly to the node of the game the player is in, using the player tracker's
+ * index. Every other event (instance events without a player, global events like the server tick monitor, and custom
+ * events) can't be attributed to a game, so it is passed to every game, as it was when the nodes were in the tree.
+ */
+final class GameEventRouter {
+
+    private final @NotNull GamePlayerTracker playerTracker;
+    private final @NotNull Set<EventNode<Event>> gameNodes = ConcurrentHashMap.newKeySet();
+
+    GameEventRouter(@NotNull GamePlayerTracker playerTracker) {
+        this.playerTracker = playerTracker;
+
+        EventNode<Event> eventNode = GameEventNodes.GAMES;
+        eventNode.addListener(Event.class, this::route);
+    }
+
+    void addGame(@NotNull Game game) {
+        this.gameNodes.add(game.getEventNode());
+    }
+
+    void removeGame(@NotNull Game game) {
+        this.gameNodes.remove(game.getEventNode());
+    }
+
+    private void route(@NotNull Event event) {
+        if (event instanceof PlayerEvent playerEvent) {
+            this.routePlayerEvent(playerEvent);
+            return;
+        }
+
+        for (EventNode<Event> gameNode : this.gameNodes) {
+            gameNode.call(event);
+        }
+    }
+
+    private void routePlayerEvent(@NotNull PlayerEvent event) {
+        Game game = this.playerTracker.findGame(event.getPlayer().getUuid());
+        if (game == null) return;
+
+        // The game's own filter still applies, so player events from outside the game's instance are ignored
+        game.getEventNode().call(event);
+    }
+}
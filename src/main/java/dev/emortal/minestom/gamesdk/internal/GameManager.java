@@ -5,37 +5,70 @@ import dev.emortal.minestom.gamesdk.MinestomGameServer;
 import dev.emortal.minestom.gamesdk.game.Game;
 import dev.emortal.minestom.gamesdk.config.GameCreationInfo;
 import dev.emortal.minestom.gamesdk.config.GameSdkConfig;
+import dev.emortal.minestom.gamesdk.game.AsyncGameCreator;
+import dev.emortal.minestom.gamesdk.game.GameCreator;
 import dev.emortal.minestom.gamesdk.game.GameFinishedEvent;
+import dev.emortal.minestom.gamesdk.game.GameLifecycleHandler;
 import dev.emortal.minestom.gamesdk.game.GameProvider;
+import dev.emortal.minestom.gamesdk.game.GameUpdateRequestEvent;
 import dev.emortal.minestom.gamesdk.internal.listener.GameStatusListener;
+import dev.emortal.minestom.gamesdk.util.GamePlayerDataRepository;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.Meter;
 import io.micrometer.core.instrument.Metrics;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.format.NamedTextColor;
+import net.minestom.server.MinecraftServer;
 import net.minestom.server.entity.Player;
+import net.minestom.server.event.Event;
+import net.minestom.server.event.ListenerHandle;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Collections;
-import java.util.HashSet;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 
-public final class GameManager implements GameProvider {
+public final class GameManager implements GameProvider, GameLifecycleHandler {
     private static final Logger LOGGER = LoggerFactory.getLogger(GameManager.class);
 
+    private static final ListenerHandle<GameUpdateRequestEvent> UPDATE_REQUEST_HANDLE =
+            MinecraftServer.getGlobalEventHandler().getHandle(GameUpdateRequestEvent.class);
+    private static final ListenerHandle<GameFinishedEvent> FINISHED_HANDLE =
+            MinecraftServer.getGlobalEventHandler().getHandle(GameFinishedEvent.class);
+
     private final @NotNull GameSdkConfig config;
+    // The configured game creator, wrapped in a warm pool if that's enabled
+    private final @NotNull GameCreator gameCreator;
 
     private final List<GameStatusListener> statusListeners = new CopyOnWriteArrayList<>();
-    private final Set<Game> games = Collections.synchronizedSet(new HashSet<>());
+    // Games by match ID. Iteration is weakly consistent, so it can be done from any thread without locking.
+    private final Map<String, Game> games = new ConcurrentHashMap<>();
+    private final @NotNull GamePlayerTracker playerTracker = new GamePlayerTracker();
+    private final @NotNull GameEventRouter eventRouter = new GameEventRouter(this.playerTracker);
+    // The game each player has been matched into, for as long as the game exists, so joining players (including ones
+    // reconnecting mid-game) can be routed without scanning every game.
+    private final @NotNull Map<UUID, Game> matchedGames = new ConcurrentHashMap<>();
+    // The game each expected player has been matched into, until they join it or it starts, which is what counts
+    // against the server's capacity.
+    private final @NotNull Map<UUID, Game> reservedGames = new ConcurrentHashMap<>();
+    private final @NotNull ServerTickMonitor tickMonitor = new ServerTickMonitor();
+    private final @NotNull JoinLatencyTracer joinLatencyTracer = new JoinLatencyTracer();
+    // The game whose finished event the manager is calling on this thread, so the compatibility listener doesn't handle it again
+    private final @NotNull ThreadLocal<Game> callingEventFor = new ThreadLocal<>();
 
     public GameManager(@NotNull GameSdkConfig config) {
         this.config = config;
+        this.gameCreator = WarmGamePool.create(config);
 
         if (MinestomGameServer.TEST_MODE) {
             this.initTestMode();
@@ -43,11 +76,23 @@ public final class GameManager implements GameProvider {
             this.initProductionMode();
         }
 
-        GameEventNodes.GAME_MANAGER.addListener(GameFinishedEvent.class, this::onGameFinish);
+        // Games tell the manager they've finished directly, but games that still call the event themselves should work
+        // too. Update requests don't get the same treatment, as they're frequent, and a listener here would mean the
+        // event is always dispatched, even when nothing else is listening.
+        GameEventNodes.GAME_MANAGER.addListener(GameFinishedEvent.class, this::onGameFinishedEvent);
 
-        Gauge.builder("gamesdk.game_count", this.games, Set::size)
+        Gauge.builder("gamesdk.game_count", this.games, Map::size)
                 .description("The amount of games currently running")
                 .register(Metrics.globalRegistry);
+        Gauge.builder("gamesdk.player_count", this, GameManager::getActivePlayerCount)
+                .description("The amount of players currently in a game")
+                .register(Metrics.globalRegistry);
+        Gauge.builder("gamesdk.reserved_player_count", this, GameManager::getReservedPlayerCount)
+                .description("The amount of players that have been matched into a game but haven't joined it yet")
+                .register(Metrics.globalRegistry);
+        Gauge.builder("gamesdk.capacity_score", this, GameManager::getCapacityScore)
+                .description("How much tick headroom the server has left, from 0 (none) to 100 (idle)")
+                .register(Metrics.globalRegistry);
     }
 
     private void initTestMode() {
@@ -59,26 +104,59 @@ public final class GameManager implements GameProvider {
     }
 
     @NotNull Game createGame(@NotNull GameCreationInfo creationInfo) {
-        Game game = this.config.gameCreator().createGame(creationInfo);
+        Game game = this.gameCreator.createGame(creationInfo);
+        this.addCreatedGame(game);
+        return game;
+    }
+
+    /**
+     * Creates a game without blocking if the game creator is asynchronous, otherwise creates it on the calling thread.
+     */
+    @NotNull CompletableFuture<Game> createGameAsync(@NotNull GameCreationInfo creationInfo) {
+        if (!(this.gameCreator instanceof AsyncGameCreator asyncCreator)) {
+            try {
+                return CompletableFuture.completedFuture(this.createGame(creationInfo));
+            } catch (Exception exception) {
+                return CompletableFuture.failedFuture(exception);
+            }
+        }
+
+        return asyncCreator.createGameAsync(creationInfo).thenApply(game -> {
+            this.addCreatedGame(game);
+            return game;
+        });
+    }
+
+    private void addCreatedGame(@NotNull Game game) {
+        // Registered first, so a game that can't be registered never reaches the listeners
         this.registerGame(game);
+        this.joinLatencyTracer.markCreated(game);
         for (GameStatusListener listener : this.statusListeners) {
             listener.onGameAdded(game);
         }
-        return game;
     }
 
     private void registerGame(@NotNull Game game) {
-        boolean added = this.games.add(game);
-        if (!added) {
-            LOGGER.warn("Attempted to add game {} that is already registered", game);
-            return;
+        Game existing = this.games.putIfAbsent(game.getCreationInfo().id(), game);
+        if (existing != null) {
+            // Games are looked up by ID, so a second game with the same ID could never be finished or updated
+            throw new IllegalStateException("A game with ID " + game.getCreationInfo().id() + " is already registered");
+        }
+        for (UUID playerId : game.getCreationInfo().playerIds()) {
+            // If a player is in multiple matches (e.g. they requeued), the newest match is the one they are joining
+            this.matchedGames.put(playerId, game);
+            this.reservedGames.put(playerId, game);
         }
-        GameEventNodes.GAMES.addChild(game.getEventNode());
+        this.eventRouter.addGame(game);
+        game.bindLifecycleHandler(this);
     }
 
     public void startGame(@NotNull Game game) {
         LOGGER.info("Starting game {}", game.getCreationInfo().id());
+        // Anyone that hasn't joined by now isn't coming, so they shouldn't count against the server's capacity
+        this.releaseReservations(game);
         game.start();
+        this.joinLatencyTracer.markStarted(game);
         for (GameStatusListener listener : this.statusListeners) {
             listener.onGameStart(game);
         }
@@ -90,28 +168,59 @@ public final class GameManager implements GameProvider {
     }
 
     private void removeGame(@NotNull Game game) {
-        boolean removed = this.games.remove(game);
+        boolean removed = this.games.remove(game.getCreationInfo().id(), game);
         if (!removed) {
             LOGGER.warn("Attempted to remove game {} that is not registered", game);
             return;
         }
-        GameEventNodes.GAMES.removeChild(game.getEventNode());
+        this.playerTracker.removeGame(game);
+        this.releaseReservations(game);
+        for (UUID playerId : game.getCreationInfo().playerIds()) {
+            this.matchedGames.remove(playerId, game);
+        }
+        this.eventRouter.removeGame(game);
+        this.joinLatencyTracer.discard(game.getCreationInfo().id());
+    }
+
+    @Override
+    public void requestTrackerUpdate(@NotNull Game game) {
+        for (GameStatusListener listener : this.statusListeners) {
+            listener.onGameUpdateRequest(game);
+        }
+        // Only create and dispatch the event if something is listening for it
+        if (UPDATE_REQUEST_HANDLE.hasListener()) UPDATE_REQUEST_HANDLE.call(new GameUpdateRequestEvent(game));
+    }
+
+    @Override
+    public void finish(@NotNull Game game) {
+        this.finish(game, true);
     }
 
-    private void onGameFinish(@NotNull GameFinishedEvent event) {
-        Game game = event.game();
-        if (!this.games.contains(game)) {
+    private void finish(@NotNull Game game, boolean callEvent) {
+        if (this.games.get(game.getCreationInfo().id()) != game) {
             // Definitely don't want a double remove and clean up
             LOGGER.info("Game {} already finished and removed. Ignoring finish request.", game.getCreationInfo().id());
             return;
         }
 
         LOGGER.info("Game {} finished", game.getCreationInfo().id());
+        // Called before the game is removed, so anything listening can still find it
+        if (callEvent) this.callEvent(game, FINISHED_HANDLE, new GameFinishedEvent(game));
         for (GameStatusListener listener : this.statusListeners) {
             listener.onGameFinish(game);
         }
 
         this.removeGame(game);
+
+        // Write the players' progression from the game now, rather than whenever the next background flush is, and stop
+        // caching their data, so the next match they play (here or elsewhere) loads it fresh
+        Set<GamePlayerDataRepository<?>> repositories = new LinkedHashSet<>(this.config.playerDataRepositories());
+        repositories.addAll(GamePlayerDataRepository.getWritableRepositories());
+        for (GamePlayerDataRepository<?> repository : repositories) {
+            repository.flush();
+            repository.invalidate(game.getCreationInfo().playerIds());
+        }
+
         switch (this.config.finishBehaviour()) {
             case LOBBY ->
                     KurushimiMinestomUtils.sendToLobby(game.getPlayers(), () -> this.cleanUpGame(game), () -> this.cleanUpGame(game));
@@ -121,6 +230,23 @@ public final class GameManager implements GameProvider {
         }
     }
 
+    private void onGameFinishedEvent(@NotNull GameFinishedEvent event) {
+        if (this.callingEventFor.get() == event.game()) return; // called by finish
+
+        // Everything else listening is already being called with this event
+        this.finish(event.game(), false);
+    }
+
+    private <E extends Event> void callEvent(@NotNull Game game, @NotNull ListenerHandle<E> handle, @NotNull E event) {
+        Game previous = this.callingEventFor.get();
+        this.callingEventFor.set(game);
+        try {
+            handle.call(event);
+        } finally {
+            this.callingEventFor.set(previous);
+        }
+    }
+
     private void cleanUpGame(@NotNull Game game) {
         LOGGER.info("Cleaning up game {}", game.getCreationInfo().id());
         this.kickAllRemainingPlayers(game);
@@ -148,10 +274,40 @@ public final class GameManager implements GameProvider {
 
     @Override
     public @Nullable Game findGame(@NotNull Player player) {
-        for (Game game : this.games) {
-            if (game.getPlayers().contains(player)) return game;
+        return this.findGame(player.getUuid());
+    }
+
+    @Override
+    public @Nullable Game findGame(@NotNull UUID playerId) {
+        return this.playerTracker.findGame(playerId);
+    }
+
+    /**
+     * Finds the game that the player with the given ID was matched into, whether or not they've joined it before (e.g.
+     * they're reconnecting), as long as the game hasn't finished.
+     */
+    @Nullable Game findMatchedGame(@NotNull UUID playerId) {
+        return this.matchedGames.get(playerId);
+    }
+
+    /**
+     * Adds the player to the game they were matched into, and removes their reservation if they still have one, as
+     * they no longer need their place held for them.
+     */
+    void addReservedPlayer(@NotNull Game game, @NotNull Player player) {
+        this.playerTracker.addPlayer(game, player);
+        this.reservedGames.remove(player.getUuid(), game);
+    }
+
+    private void releaseReservations(@NotNull Game game) {
+        for (UUID playerId : game.getCreationInfo().playerIds()) {
+            this.reservedGames.remove(playerId, game);
         }
-        return null;
+    }
+
+    @Override
+    public @Nullable Game getGame(@NotNull String matchId) {
+        return this.games.get(matchId);
     }
 
     @Override
@@ -159,8 +315,45 @@ public final class GameManager implements GameProvider {
         return this.games.size();
     }
 
-    public @NotNull Set<Game> getGames() {
-        return this.games;
+    /**
+     * @return the amount of players currently in a game on this server
+     */
+    public int getActivePlayerCount() {
+        return this.playerTracker.getPlayerCount();
+    }
+
+    /**
+     * @return the amount of players that have been matched into a game on this server, but haven't joined it yet
+     */
+    public int getReservedPlayerCount() {
+        // Reservations are removed when the player joins, or when the game starts or is removed without them
+        return this.reservedGames.size();
+    }
+
+    /**
+     * Gets how much room the server has for more games, based on how much of each tick's time budget is left.
+     *
+     * @return the score, from 0 (ticks are taking their whole budget or longer) to 100 (ticks take no time at all)
+     */
+    public int getCapacityScore() {
+        double headroom = 1 - this.tickMonitor.getTickLoad();
+        return (int) Math.round(Math.clamp(headroom, 0, 1) * 100);
+    }
+
+    public @NotNull Collection<Game> getGames() {
+        return this.games.values();
+    }
+
+    @NotNull GamePlayerTracker getPlayerTracker() {
+        return this.playerTracker;
+    }
+
+    @NotNull JoinLatencyTracer getJoinLatencyTracer() {
+        return this.joinLatencyTracer;
+    }
+
+    @NotNull ServerTickMonitor getTickMonitor() {
+        return this.tickMonitor;
     }
 
     public void addGameStatusListener(@NotNull GameStatusListener statusListener) {
@@ -3,16 +3,27 @@ package dev.emortal.minestom.gamesdk.internal;
 import dev.emortal.minestom.gamesdk.game.Game;
 import net.minestom.server.entity.Player;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 final class GamePlayerTracker {
 
-    static void addPlayer(@NotNull Game game, @NotNull Player player) {
+    // The game each player is currently in, so finding a player's game doesn't have to scan every game.
+    private final @NotNull Map<UUID, Game> gamesByPlayer = new ConcurrentHashMap<>();
+
+    void addPlayer(@NotNull Game game, @NotNull Player player) {
         game.getPlayers().add(player);
+        this.gamesByPlayer.put(player.getUuid(), game);
         game.onPreJoin(player);
     }
 
-    static void removePlayer(@NotNull Game game, @NotNull Player player) {
+    void removePlayer(@NotNull Game game, @NotNull Player player) {
         game.getPlayers().remove(player);
+        // Only remove the mapping if it still points to this game, as the player may have already been moved to another one
+        this.gamesByPlayer.remove(player.getUuid(), game);
         game.onLeave(player);
 
         if (game.getPlayers().isEmpty()) {
@@ -21,6 +32,21 @@ final class GamePlayerTracker {
         }
     }
 
-    private GamePlayerTracker() {
+    @Nullable Game findGame(@NotNull UUID playerId) {
+        return this.gamesByPlayer.get(playerId);
+    }
+
+    int getPlayerCount() {
+        return this.gamesByPlayer.size();
+    }
+
+    /*
+     * Called when a game is unregistered. The players are left in the game's player set until they have been sent
+     * somewhere else, but they should no longer be found as being in the game.
+     */
+    void removeGame(@NotNull Game game) {
+        for (Player player : game.getPlayers()) {
+            this.gamesByPlayer.remove(player.getUuid(), game);
+        }
     }
 }
@@ -8,18 +8,13 @@ import dev.emortal.api.message.gametracker.GameStartMessage;
 import dev.emortal.api.message.gametracker.GameUpdateMessage;
 import dev.emortal.api.model.gametracker.BasicGamePlayer;
 import dev.emortal.api.utils.ProtoTimestampConverter;
-import dev.emortal.api.utils.kafka.FriendlyKafkaProducer;
 import dev.emortal.minestom.core.Environment;
-import dev.emortal.minestom.core.module.messaging.MessagingModule;
 import dev.emortal.minestom.gamesdk.config.GameCreationInfo;
 import dev.emortal.minestom.gamesdk.config.GameSdkConfig;
 import dev.emortal.minestom.gamesdk.game.Game;
-import dev.emortal.minestom.gamesdk.game.GameUpdateRequestEvent;
 import dev.emortal.minestom.gamesdk.internal.listener.GameStatusListener;
 import dev.emortal.minestom.gamesdk.util.BasicGamePlayerConverter;
 import net.minestom.server.entity.Player;
-import net.minestom.server.event.Event;
-import net.minestom.server.event.EventNode;
 import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -27,6 +22,7 @@ import org.slf4j.LoggerFactory;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.*;
 
 public final class GameTracker implements GameStatusListener {
@@ -34,6 +30,14 @@ public final class GameTracker implements GameStatusListener {
     public static final int DEFAULT_MAX_UPDATE_INTERVAL = 180; // 3 minutes
 
     public static final int DEFAULT_UPDATE_INTERVAL = 10;
+    public static final int DEFAULT_BATCH_WINDOW = 100; // milliseconds
+    public static final int DEFAULT_KEYFRAME_INTERVAL = 0; // delta updates disabled
+    public static final boolean DEFAULT_ADAPTIVE_INTERVAL = false;
+
+    // 100 ms ticks, so the wheel turns every ~51 seconds
+    private static final long DEADLINE_TICK_MILLIS = 100;
+    private static final int DEADLINE_WHEEL_SIZE = 512;
+    private static final long ADAPTIVE_INTERVAL_RECALCULATE_MILLIS = 1000;
 
     private static final Logger LOGGER = LoggerFactory.getLogger(GameTracker.class);
     private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(
@@ -44,39 +48,56 @@ public final class GameTracker implements GameStatusListener {
                             LOGGER.error("An error occurred while updating games", exception))
                     .factory()
     );
-    private static final EventNode<Event> EVENT_NODE = GameEventNodes.GAME_MANAGER;
 
-    private final @NotNull FriendlyKafkaProducer kafkaProducer;
+    private final @NotNull MessageOutbox outbox;
     private final @NotNull GameSdkConfig config;
 
-    private final @NotNull Map<Game, ScheduledFuture<?>> gameMaxTimeUpdateTasks = new ConcurrentHashMap<>();
+    private final @NotNull GameUpdateBatcher updateBatcher;
+    private final @NotNull AdaptiveTrackingInterval minInterval;
+    private final @NotNull DeadlineWheel deadlines = new DeadlineWheel("tracker", DEADLINE_TICK_MILLIS, DEADLINE_WHEEL_SIZE);
+
+    private final @NotNull Map<Game, TrackedGame> trackedGames = new ConcurrentHashMap<>();
 
-    public GameTracker(@NotNull MessagingModule messagingModule, @NotNull GameSdkConfig config) {
-        this.kafkaProducer = messagingModule.getKafkaProducer();
+    public GameTracker(@NotNull GameManager gameManager, @NotNull MessageOutbox outbox, @NotNull GameSdkConfig config) {
+        this.outbox = outbox;
         this.config = config;
 
-        EVENT_NODE.addListener(GameUpdateRequestEvent.class, this::onGameUpdateRequest);
+        outbox.registerMessageType(GameStartMessage.getDefaultInstance());
+        outbox.registerMessageType(GameUpdateMessage.getDefaultInstance());
+        outbox.registerMessageType(GameFinishMessage.getDefaultInstance());
+        this.updateBatcher = new GameUpdateBatcher(SCHEDULER, config.trackingBatchWindow(), this::publishUpdate);
+
+        this.minInterval = new AdaptiveTrackingInterval(config.minTrackingInterval() * 1000L, config.maxTrackingInterval() * 1000L,
+                gameManager::getGameCount, outbox::getQueueFill, gameManager.getTickMonitor());
+        if (config.adaptiveTrackingInterval()) {
+            SCHEDULER.scheduleAtFixedRate(this.minInterval::recalculate,
+                    ADAPTIVE_INTERVAL_RECALCULATE_MILLIS, ADAPTIVE_INTERVAL_RECALCULATE_MILLIS, TimeUnit.MILLISECONDS);
+        }
+
+        SCHEDULER.scheduleAtFixedRate(() -> this.deadlines.advance(System.currentTimeMillis()),
+                DEADLINE_TICK_MILLIS, DEADLINE_TICK_MILLIS, TimeUnit.MILLISECONDS);
     }
 
     private void maxTimeUpdate(@NotNull Game game) {
-        long nextExpectedUpdate = game.getLastGameTrackerUpdate() + (this.config.maxTrackingInterval() * 1000L);
-        long timeUntilNextUpdate = nextExpectedUpdate - System.currentTimeMillis();
-        if (timeUntilNextUpdate > 0) {
-            // Game has been updated in the meantime, let's reschedule this task
-            this.gameMaxTimeUpdateTasks.put(game, SCHEDULER.schedule(() -> {
-                this.maxTimeUpdate(game);
-            }, timeUntilNextUpdate + 10, TimeUnit.MILLISECONDS));
-            return;
-        }
+        TrackedGame trackedGame = this.trackedGames.get(game);
+        if (trackedGame == null) return;
 
-        // Game hasn't been updated in a while, let's update it now
-        this.updateGame(game);
+        // The deadline is pushed back every time the game is updated, so if this runs, the game hasn't been updated in a while
+        trackedGame.markHeartbeatDue();
+        this.queueUpdate(game);
+    }
+
+    @Override
+    public void onGameAdded(@NotNull Game game) {
+        TrackedGame trackedGame = new TrackedGame(game, this.createStaticCommonGameData(game),
+                () -> this.queueUpdate(game), () -> this.maxTimeUpdate(game));
+        this.trackedGames.put(game, trackedGame);
     }
 
     @Override
     public void onGameStart(@NotNull Game game) {
         GameStartMessage.Builder messageBuilder = GameStartMessage.newBuilder()
-                .setCommonData(this.createCommonGameData(game))
+                .setCommonData(this.getCommonGameData(game))
                 .setStartTime(ProtoTimestampConverter.now())
                 .addAllContent(this.packMessages(game.createGameStartExtraData()));
 
@@ -85,34 +106,46 @@ public final class GameTracker implements GameStatusListener {
             messageBuilder.setMapId(mapId);
         }
 
-        this.gameMaxTimeUpdateTasks.put(game, SCHEDULER.schedule(() -> {
-            this.maxTimeUpdate(game);
-        }, this.config.maxTrackingInterval(), TimeUnit.MILLISECONDS));
+        TrackedGame trackedGame = this.trackedGames.get(game);
+        if (trackedGame != null) {
+            trackedGame.markStarted();
+            this.scheduleMaxTimeUpdate(trackedGame);
+        }
 
-        this.kafkaProducer.produceAndForget(messageBuilder.build());
+        this.outbox.send(messageBuilder.build());
     }
 
     @Override
     public void onGameRemoved(@NotNull Game game) {
-        // Cancel the max time update task
-        this.gameMaxTimeUpdateTasks.remove(game).cancel(false);
+        // Don't publish an update after the game has finished
+        TrackedGame trackedGame = this.trackedGames.remove(game);
+        if (trackedGame != null) {
+            this.deadlines.cancel(trackedGame.minIntervalUpdate());
+            this.deadlines.cancel(trackedGame.maxIntervalUpdate());
+        }
+        this.updateBatcher.cancel(game);
 
+        CommonGameData commonData = trackedGame != null ? trackedGame.commonData() : this.createCommonGameData(game);
         GameFinishMessage message = GameFinishMessage.newBuilder()
-                .setCommonData(this.createCommonGameData(game))
+                .setCommonData(commonData)
                 .addAllContent(this.packMessages(game.createGameFinishExtraData()))
                 .setEndTime(ProtoTimestampConverter.now())
                 .build();
 
-        this.kafkaProducer.produceAndForget(message);
+        this.outbox.send(message);
     }
 
-    private void onGameUpdateRequest(@NotNull GameUpdateRequestEvent event) {
-        Game game = event.game();
-        long minNextUpdate = game.getLastGameTrackerUpdate() + (this.config.minTrackingInterval() * 1000L);
+    @Override
+    public void onGameUpdateRequest(@NotNull Game game) {
+        TrackedGame trackedGame = this.trackedGames.get(game);
+        if (trackedGame == null) return; // the game has already been removed
+
+        long minNextUpdate = game.getLastGameTrackerUpdate() + this.minInterval.getInterval();
 
         boolean wasMarkedForQueue = game.markTrackerUpdateQueued();
         if (wasMarkedForQueue) {
             // Game was already queued for an update, ignore
+            this.updateBatcher.recordCoalesced();
             return;
         }
 
@@ -120,25 +153,58 @@ public final class GameTracker implements GameStatusListener {
             // Game was updated too recently, queue an update if it isn't already queued
 
             // Schedule an update for the next interval
-            SCHEDULER.schedule(
-                    () -> this.updateGame(game),
-                    minNextUpdate - System.currentTimeMillis(),
-                    TimeUnit.MILLISECONDS);
+            this.deadlines.schedule(trackedGame.minIntervalUpdate(), minNextUpdate);
             return;
         }
 
-        // Last game update is longer than the min, update immediately
-        this.updateGame(game);
+        // Last game update is longer than the min, update in the next batch
+        this.queueUpdate(game);
+    }
+
+    private void queueUpdate(@NotNull Game game) {
+        this.updateBatcher.queue(game);
     }
 
-    private void updateGame(@NotNull Game game) {
+    private void publishUpdate(@NotNull Game game) {
+        TrackedGame trackedGame = this.trackedGames.get(game);
+        if (trackedGame == null) return; // the game has already been removed
+
+        CommonGameData commonData = trackedGame.commonData();
+        boolean heartbeat = trackedGame.takeHeartbeatDue();
+
+        List<Any> content;
+        List<String> sections = game.getGameUpdateSections();
+        if (sections.isEmpty()) {
+            content = this.packMessages(game.createGameUpdateExtraData());
+        } else {
+            Set<String> dirtySections = game.takeDirtyUpdateSections(sections);
+            boolean sectionsUpdated = trackedGame.updateSections(sections, dirtySections, game::createGameUpdateSection);
+
+            if (!sectionsUpdated && !heartbeat && !trackedGame.havePlayersChangedSincePublish(commonData)) {
+                // Nothing has changed since the last update, so there's nothing worth sending. The game isn't marked as
+                // updated, so the next real change isn't held back by the min interval, but it isn't queued any more
+                // either, so that change is handled rather than coalesced into this one.
+                game.markTrackerUpdateSkipped();
+                return;
+            }
+            content = trackedGame.getPackedSections(sections);
+        }
+
         game.markTrackerUpdated();
-        GameUpdateMessage message = GameUpdateMessage.newBuilder()
-                .setCommonData(this.createCommonGameData(game))
-                .addAllContent(this.packMessages(game.createGameUpdateExtraData()))
-                .build();
+        if (trackedGame.isStarted()) this.scheduleMaxTimeUpdate(trackedGame);
+        trackedGame.markPublished(commonData);
 
-        this.kafkaProducer.produceAndForget(message);
+        int keyframeInterval = this.config.trackingKeyframeInterval();
+        GameUpdateMessage message = keyframeInterval > 0
+                ? trackedGame.deltaState().encode(commonData, content, keyframeInterval)
+                : GameUpdateMessage.newBuilder().setCommonData(commonData).addAllContent(content).build();
+
+        this.outbox.send(message);
+    }
+
+    private void scheduleMaxTimeUpdate(@NotNull TrackedGame trackedGame) {
+        long nextUpdate = trackedGame.game().getLastGameTrackerUpdate() + (this.config.maxTrackingInterval() * 1000L);
+        this.deadlines.schedule(trackedGame.maxIntervalUpdate(), nextUpdate);
     }
 
     private @NotNull List<Any> packMessages(@NotNull List<? extends Message> messages) {
@@ -151,18 +217,31 @@ public final class GameTracker implements GameStatusListener {
         return gameContent;
     }
 
+    private @NotNull CommonGameData getCommonGameData(@NotNull Game game) {
+        TrackedGame trackedGame = this.trackedGames.get(game);
+        if (trackedGame != null) return trackedGame.commonData();
+
+        return this.createCommonGameData(game);
+    }
+
     private @NotNull CommonGameData createCommonGameData(@NotNull Game game) {
+        return this.createStaticCommonGameData(game).toBuilder()
+                .addAllPlayers(this.createGamePlayers(game))
+                .build();
+    }
+
+    // The parts of the common data that don't change throughout a game
+    private @NotNull CommonGameData createStaticCommonGameData(@NotNull Game game) {
         GameCreationInfo creationInfo = game.getCreationInfo();
         return CommonGameData.newBuilder()
                 .setGameId(creationInfo.id())
                 .setGameModeId(creationInfo.gameModeId())
                 .setServerId(Environment.getHostname())
-                .addAllPlayers(this.createGamePlayers(game))
                 .build();
     }
 
     private @NotNull List<BasicGamePlayer> createGamePlayers(@NotNull Game game) {
-        return game.getPlayers().stream()
+        return game.getPlayerSnapshot().stream()
                 .map(BasicGamePlayerConverter::fromMinestomPlayer)
                 .toList();
     }
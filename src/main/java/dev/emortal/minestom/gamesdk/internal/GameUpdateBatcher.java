@@ -0,0 +1,123 @@
+package dev.emortal.minestom.gamesdk.internal;
+
+import dev.emortal.minestom.gamesdk.game.Game;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/*
+ * Collects game updates over a short window and publishes them all together, rather than sending every update as
+ * soon as it is requested. This turns a burst of updates (e.g. every game hitting a round boundary at once) into a
+ * single flush, and a game that is queued more than once in the same window is only published once.
+ */
+final class GameUpdateBatcher {
+    private static final Logger LOGGER = LoggerFactory.getLogger(GameUpdateBatcher.class);
+
+    private final @NotNull ScheduledExecutorService scheduler;
+    private final long windowMillis;
+    private final @NotNull Consumer<Game> publisher;
+
+    // The games waiting to be published, and the time (in nanos) they were first queued in this window
+    private final @NotNull Map<Game, Long> pending = new ConcurrentHashMap<>();
+    private final @NotNull AtomicBoolean flushScheduled = new AtomicBoolean(false);
+
+    private final @NotNull Counter requestCounter;
+    private final @NotNull Counter coalescedCounter;
+    private final @NotNull DistributionSummary flushSizeSummary;
+    private final @NotNull Timer latencyTimer;
+
+    GameUpdateBatcher(@NotNull ScheduledExecutorService scheduler, long windowMillis, @NotNull Consumer<Game> publisher) {
+        this.scheduler = scheduler;
+        this.windowMillis = windowMillis;
+        this.publisher = publisher;
+
+        this.requestCounter = Counter.builder("gamesdk.tracker.update_requests")
+                .description("The amount of game updates that have been requested")
+                .register(Metrics.globalRegistry);
+        this.coalescedCounter = Counter.builder("gamesdk.tracker.coalesced_updates")
+                .description("The amount of requested game updates that were merged into an update that was already queued")
+                .register(Metrics.globalRegistry);
+        this.flushSizeSummary = DistributionSummary.builder("gamesdk.tracker.flush_size")
+                .description("The amount of game updates published in each flush")
+                .register(Metrics.globalRegistry);
+        this.latencyTimer = Timer.builder("gamesdk.tracker.update_latency")
+                .description("The time between a game update being queued and it being published")
+                .register(Metrics.globalRegistry);
+
+        Gauge.builder("gamesdk.tracker.coalescing_ratio", this, GameUpdateBatcher::coalescingRatio)
+                .description("The fraction of requested game updates that were merged into another update")
+                .register(Metrics.globalRegistry);
+    }
+
+    void queue(@NotNull Game game) {
+        this.requestCounter.increment();
+
+        if (this.pending.putIfAbsent(game, System.nanoTime()) != null) {
+            // Already going out in this window
+            this.coalescedCounter.increment();
+            return;
+        }
+
+        if (this.windowMillis <= 0) {
+            this.flush();
+            return;
+        }
+        if (this.flushScheduled.compareAndSet(false, true)) {
+            this.scheduler.schedule(this::flush, this.windowMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Records an update request that was dropped before reaching the batcher because the game already had one queued.
+     */
+    void recordCoalesced() {
+        this.requestCounter.increment();
+        this.coalescedCounter.increment();
+    }
+
+    void cancel(@NotNull Game game) {
+        this.pending.remove(game);
+    }
+
+    private void flush() {
+        // Reset before draining, so anything queued while we're publishing schedules another flush
+        this.flushScheduled.set(false);
+
+        int flushed = 0;
+        for (Map.Entry<Game, Long> entry : this.pending.entrySet()) {
+            Game game = entry.getKey();
+            Long queuedTime = entry.getValue();
+            // The game may have been cancelled since we started iterating
+            if (!this.pending.remove(game, queuedTime)) continue;
+
+            this.latencyTimer.record(System.nanoTime() - queuedTime, TimeUnit.NANOSECONDS);
+            try {
+                this.publisher.accept(game);
+                flushed++;
+            } catch (Exception exception) {
+                // One game failing to build its update shouldn't stop the rest of the batch from going out
+                LOGGER.error("Failed to publish update for game {}", game.getCreationInfo().id(), exception);
+            }
+        }
+
+        if (flushed > 0) this.flushSizeSummary.record(flushed);
+    }
+
+    private double coalescingRatio() {
+        double requests = this.requestCounter.count();
+        if (requests == 0) return 0;
+        return this.coalescedCounter.count() / requests;
+    }
+}
@@ -0,0 +1,147 @@
+package dev.emortal.minestom.gamesdk.internal;
+
+import com.google.protobuf.Any;
+import com.google.protobuf.ListValue;
+import com.google.protobuf.Struct;
+import com.google.protobuf.Value;
+import dev.emortal.api.message.gametracker.CommonGameData;
+import dev.emortal.api.message.gametracker.GameUpdateMessage;
+import dev.emortal.api.model.gametracker.BasicGamePlayer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Remembers the last update published for a game, so that the next update can be sent as a delta.
+ *
+ * The game tracker messages have no fields for deltas, so they are described within the existing schema:
+ * - The common data's players only contains the players that were added since the last update.
+ * - The content only contains the sections (identified by their type URL) that changed since the last update.
+ * - The first content entry is a header (a google.protobuf.Struct) with the delta's details. See DeltaHeader.
+ *
+ * Every keyframe interval, a full update is sent instead, with the same header marking it as a keyframe, so that
+ * consumers that missed a delta or started consuming part way through a game can resync.
+ */
+final class GameUpdateDeltaState {
+
+    private @Nullable CommonGameData lastCommonData;
+    private @NotNull Map<String, BasicGamePlayer> lastPlayers = Map.of();
+    private @NotNull Map<String, Any> lastContent = Map.of();
+
+    private long sequence = 0;
+    // Start as due a keyframe, as consumers won't have a full update to apply deltas to yet
+    private int updatesSinceKeyframe = Integer.MAX_VALUE;
+
+    synchronized @NotNull GameUpdateMessage encode(@NotNull CommonGameData commonData, @NotNull List<Any> content,
+                                                   int keyframeInterval) {
+        // The tracker reuses the common data until the players change, so we only need to index the players when it does
+        Map<String, BasicGamePlayer> players = this.lastPlayers;
+        if (commonData != this.lastCommonData) {
+            players = new HashMap<>();
+            for (BasicGamePlayer player : commonData.getPlayersList()) {
+                players.put(player.getId(), player);
+            }
+        }
+
+        Map<String, Any> contentByType = new HashMap<>();
+        boolean uniqueContentTypes = true;
+        for (Any section : content) {
+            if (contentByType.put(section.getTypeUrl(), section) != null) uniqueContentTypes = false;
+        }
+
+        long sequence = ++this.sequence;
+        // If a game sends multiple sections of the same type, we can't tell which one changed, so send everything
+        boolean keyframe = !uniqueContentTypes || this.updatesSinceKeyframe >= keyframeInterval;
+
+        GameUpdateMessage message = keyframe
+                ? this.createKeyframe(commonData, content, sequence)
+                : this.createDelta(commonData, players, contentByType, sequence);
+
+        this.lastCommonData = commonData;
+        this.lastPlayers = players;
+        this.lastContent = contentByType;
+        this.updatesSinceKeyframe = keyframe ? 0 : this.updatesSinceKeyframe + 1;
+        return message;
+    }
+
+    private @NotNull GameUpdateMessage createKeyframe(@NotNull CommonGameData commonData, @NotNull List<Any> content,
+                                                      long sequence) {
+        Struct header = DeltaHeader.create(true, sequence, List.of(), List.of());
+        return GameUpdateMessage.newBuilder()
+                .setCommonData(commonData)
+                .addContent(Any.pack(header))
+                .addAllContent(content)
+                .build();
+    }
+
+    private @NotNull GameUpdateMessage createDelta(@NotNull CommonGameData commonData, @NotNull Map<String, BasicGamePlayer> players,
+                                                   @NotNull Map<String, Any> contentByType, long sequence) {
+        CommonGameData.Builder deltaCommonData = commonData.toBuilder().clearPlayers();
+        List<String> removedPlayerIds = new ArrayList<>();
+        if (players != this.lastPlayers) {
+            for (BasicGamePlayer player : players.values()) {
+                if (!this.lastPlayers.containsKey(player.getId())) deltaCommonData.addPlayers(player);
+            }
+            for (String playerId : this.lastPlayers.keySet()) {
+                if (!players.containsKey(playerId)) removedPlayerIds.add(playerId);
+            }
+        }
+
+        List<Any> changedContent = new ArrayList<>();
+        for (Any section : contentByType.values()) {
+            // Any's equality compares the packed bytes, so this is true for sections that are unchanged
+            if (!section.equals(this.lastContent.get(section.getTypeUrl()))) changedContent.add(section);
+        }
+
+        List<String> removedContentTypes = new ArrayList<>();
+        for (String typeUrl : this.lastContent.keySet()) {
+            if (!contentByType.containsKey(typeUrl)) removedContentTypes.add(typeUrl);
+        }
+
+        Struct header = DeltaHeader.create(false, sequence, removedPlayerIds, removedContentTypes);
+        return GameUpdateMessage.newBuilder()
+                .setCommonData(deltaCommonData)
+                .addContent(Any.pack(header))
+                .addAllContent(changedContent)
+                .build();
+    }
+
+    /**
+     * The header sent as the first content entry of every update when delta updates are enabled.
+     */
+    static final class DeltaHeader {
+        // Whether this is a full update, rather than a delta
+        static final String KEYFRAME = "keyframe";
+        // Increments by one for every update of the game, so consumers can tell if they missed a delta
+        static final String SEQUENCE = "sequence";
+        // The IDs of the players that have left since the last update
+        static final String REMOVED_PLAYER_IDS = "removedPlayerIds";
+        // The type URLs of the content sections that the game stopped sending since the last update
+        static final String REMOVED_CONTENT_TYPES = "removedContentTypes";
+
+        static @NotNull Struct create(boolean keyframe, long sequence, @NotNull List<String> removedPlayerIds,
+                                      @NotNull List<String> removedContentTypes) {
+            return Struct.newBuilder()
+                    .putFields(KEYFRAME, Value.newBuilder().setBoolValue(keyframe).build())
+                    .putFields(SEQUENCE, Value.newBuilder().setNumberValue(sequence).build())
+                    .putFields(REMOVED_PLAYER_IDS, stringList(removedPlayerIds))
+                    .putFields(REMOVED_CONTENT_TYPES, stringList(removedContentTypes))
+                    .build();
+        }
+
+        private static @NotNull Value stringList(@NotNull List<String> values) {
+            ListValue.Builder list = ListValue.newBuilder();
+            for (String value : values) {
+                list.addValues(Value.newBuilder().setStringValue(value));
+            }
+            return Value.newBuilder().setListValue(list).build();
+        }
+
+        private DeltaHeader() {
+        }
+    }
+}
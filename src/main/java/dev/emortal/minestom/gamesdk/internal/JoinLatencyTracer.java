@@ -0,0 +1,152 @@
+package dev.emortal.minestom.gamesdk.internal;
+
+import dev.emortal.minestom.gamesdk.config.GameCreationInfo;
+import dev.emortal.minestom.gamesdk.game.Game;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Records how long each stage of getting a match's players into a started game takes, from the match created message
+ * being received to the game starting.
+ *
+ * The match stages are measured from the message being received:
+ * - created: the game has been created by the game creator
+ * - first_join: the first player has joined the server
+ * - last_spawn: the last player has spawned in the game
+ * - started: the game has started
+ * And each player's stages are:
+ * - player_join: from the game being created to the player joining the server
+ * - player_spawn: from the player joining the server to them spawning in the game
+ *
+ * The timers are tagged by game mode rather than game, so that they don't create a new series for every game, and only
+ * publish the 50th and 99th percentiles. When a game starts, a summary of its stages is also logged.
+ */
+final class JoinLatencyTracer {
+    private static final Logger LOGGER = LoggerFactory.getLogger(JoinLatencyTracer.class);
+
+    private final @NotNull Map<String, MatchTrace> traces = new ConcurrentHashMap<>();
+    // Timers by stage and game mode, so that they don't have to be looked up in the registry every time
+    private final @NotNull Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    /**
+     * Starts tracing a match.
+     *
+     * @param receivedTime the {@link System#nanoTime()} the match created message was received at
+     */
+    void traceMatch(@NotNull GameCreationInfo creationInfo, long receivedTime) {
+        this.traces.put(creationInfo.id(), new MatchTrace(creationInfo.gameModeId(), receivedTime));
+    }
+
+    void markCreated(@NotNull Game game) {
+        MatchTrace trace = this.getTrace(game);
+        if (trace == null) return;
+
+        trace.createdTime = System.nanoTime();
+        this.record("created", trace, trace.createdTime - trace.receivedTime);
+    }
+
+    void markPlayerJoined(@NotNull Game game, @NotNull UUID playerId) {
+        MatchTrace trace = this.getTrace(game);
+        if (trace == null) return;
+
+        long now = System.nanoTime();
+        trace.joinTimes.put(playerId, now);
+        // Players join on their own threads, so only the one that gets here first records the first join
+        if (trace.firstJoinTime.compareAndSet(0, now)) {
+            this.record("first_join", trace, now - trace.receivedTime);
+        }
+        this.record("player_join", trace, now - trace.createdTime);
+    }
+
+    void markPlayerSpawned(@NotNull Game game, @NotNull UUID playerId) {
+        MatchTrace trace = this.getTrace(game);
+        if (trace == null) return;
+
+        // Removing it means that spawning again (e.g. changing instance) isn't recorded as another spawn
+        Long joinTime = trace.joinTimes.remove(playerId);
+        if (joinTime == null) return; // already spawned, or joined without us seeing it (e.g. moved from another game)
+
+        long now = System.nanoTime();
+        trace.lastSpawnTime = now;
+        this.record("player_spawn", trace, now - joinTime);
+    }
+
+    /**
+     * @param reason why the game was started, e.g. all the players having joined or the start timeout passing
+     */
+    void markStartReason(@NotNull Game game, @NotNull String reason) {
+        MatchTrace trace = this.getTrace(game);
+        if (trace != null) trace.startReason = reason;
+    }
+
+    void markStarted(@NotNull Game game) {
+        MatchTrace trace = this.traces.remove(game.getCreationInfo().id());
+        if (trace == null) return;
+
+        long now = System.nanoTime();
+        if (trace.lastSpawnTime != 0) this.record("last_spawn", trace, trace.lastSpawnTime - trace.receivedTime);
+        this.record("started", trace, now - trace.receivedTime);
+
+        GameCreationInfo creationInfo = game.getCreationInfo();
+        LOGGER.info("Game started: gameId={} gameMode={} reason={} players={}/{} created={}ms firstJoin={}ms lastSpawn={}ms started={}ms",
+                creationInfo.id(), trace.gameModeId, trace.startReason, game.getPlayers().size(), creationInfo.playerIds().size(),
+                trace.millisSinceReceived(trace.createdTime), trace.millisSinceReceived(trace.firstJoinTime.get()),
+                trace.millisSinceReceived(trace.lastSpawnTime), trace.millisSinceReceived(now));
+    }
+
+    /**
+     * Stops tracing a match without recording that it started, e.g. because it couldn't be created or finished before
+     * starting.
+     */
+    void discard(@NotNull String matchId) {
+        this.traces.remove(matchId);
+    }
+
+    private @Nullable MatchTrace getTrace(@NotNull Game game) {
+        return this.traces.get(game.getCreationInfo().id());
+    }
+
+    private void record(@NotNull String stage, @NotNull MatchTrace trace, long nanos) {
+        Timer timer = this.timers.computeIfAbsent(stage + ':' + trace.gameModeId, key -> Timer.builder("gamesdk.join_latency")
+                .tag("stage", stage)
+                .tag("gameMode", trace.gameModeId)
+                .description("The time taken to reach each stage of starting a game, from the match being created")
+                .publishPercentiles(0.5, 0.99)
+                .register(Metrics.globalRegistry));
+        timer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    private static final class MatchTrace {
+
+        final @NotNull String gameModeId;
+        final long receivedTime;
+        // The time each player joined, until they spawn
+        final @NotNull Map<UUID, Long> joinTimes = new ConcurrentHashMap<>();
+
+        // 0 until the stage is reached. Players join on their own threads, so the first join is set atomically.
+        final @NotNull AtomicLong firstJoinTime = new AtomicLong();
+        volatile long createdTime;
+        volatile long lastSpawnTime;
+        volatile @NotNull String startReason = "unknown";
+
+        MatchTrace(@NotNull String gameModeId, long receivedTime) {
+            this.gameModeId = gameModeId;
+            this.receivedTime = receivedTime;
+        }
+
+        @Nullable Long millisSinceReceived(long time) {
+            if (time == 0) return null;
+            return TimeUnit.NANOSECONDS.toMillis(time - this.receivedTime);
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package dev.emortal.minestom.gamesdk.internal;
+
+import com.google.protobuf.Any;
+import com.google.protobuf.InvalidProtocolBufferException;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * An append-only journal of messages, stored in a memory-mapped file so that it survives the process restarting.
+ *
+ * The file starts with a header holding the read and write positions, followed by the records. Each record is the
+ * length of the message, the time it was written, and the message packed in an Any. Records are read back in the order
+ * they were written, and once everything written has been read, the positions are reset to the start of the file.
+ */
+final class MessageJournal {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MessageJournal.class);
+
+    private static final int READ_POSITION_OFFSET = 0;
+    private static final int WRITE_POSITION_OFFSET = 8;
+    private static final int HEADER_SIZE = 16;
+    // The length and the timestamp
+    private static final int RECORD_HEADER_SIZE = 4 + 8;
+
+    private final @NotNull MappedByteBuffer buffer;
+    private final int capacity;
+
+    private int readPosition;
+    private int writePosition;
+
+    MessageJournal(@NotNull Path path, int capacity) throws IOException {
+        Files.createDirectories(path.toAbsolutePath().getParent());
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // The mapping stays valid after the channel is closed
+            this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        }
+        this.capacity = capacity;
+
+        this.readPosition = (int) this.buffer.getLong(READ_POSITION_OFFSET);
+        this.writePosition = (int) this.buffer.getLong(WRITE_POSITION_OFFSET);
+        if (!this.hasValidPositions()) {
+            // A new file, or one that is from a journal of a different size. Either way, we can't trust what's in it.
+            if (this.readPosition != 0 || this.writePosition != 0) {
+                LOGGER.warn("Discarding journal {} as it has invalid positions (read: {}, write: {})", path, this.readPosition, this.writePosition);
+            }
+            this.reset();
+        }
+    }
+
+    private boolean hasValidPositions() {
+        return this.readPosition >= HEADER_SIZE && this.readPosition <= this.writePosition && this.writePosition <= this.capacity;
+    }
+
+    /**
+     * @return false if there is no room left in the journal for the message
+     */
+    synchronized boolean append(@NotNull Any message, long timestamp) {
+        byte[] bytes = message.toByteArray();
+        int recordSize = RECORD_HEADER_SIZE + bytes.length;
+        if (this.writePosition + recordSize > this.capacity) return false;
+
+        this.buffer.putInt(this.writePosition, bytes.length);
+        this.buffer.putLong(this.writePosition + 4, timestamp);
+        this.buffer.put(this.writePosition + RECORD_HEADER_SIZE, bytes);
+
+        // Only move the write position once the record is fully written, so a crash part way through doesn't corrupt it
+        this.writePosition += recordSize;
+        this.buffer.putLong(WRITE_POSITION_OFFSET, this.writePosition);
+        return true;
+    }
+
+    /**
+     * Reads and removes the oldest record in the journal.
+     *
+     * @return the record, or null if the journal is empty
+     */
+    synchronized @Nullable Record poll() {
+        while (true) {
+            Batch batch = this.peek(1);
+            this.advance(batch.endPosition());
+            if (!batch.records().isEmpty()) return batch.records().getFirst();
+            // The batch was empty either because the journal is, or because it only skipped a corrupt record
+            if (this.isEmpty()) return null;
+        }
+    }
+
+    /**
+     * Reads up to the given amount of the oldest records in the journal, without removing them. Once they have been
+     * dealt with, pass the batch's end position to {@link #advance(int)} to remove them.
+     *
+     * <p>
+     * The end position also covers any corrupt records that were skipped while reading the batch, so they are removed
+     * along with it.
+     */
+    synchronized @NotNull Batch peek(int maxRecords) {
+        List<Record> records = new ArrayList<>();
+        int position = this.readPosition;
+        while (position < this.writePosition && records.size() < maxRecords) {
+            int length = this.buffer.getInt(position);
+            if (length < 0 || position + RECORD_HEADER_SIZE + length > this.writePosition) {
+                LOGGER.error("Discarding the rest of the journal as it contains a record with an invalid length ({})", length);
+                position = this.writePosition;
+                break;
+            }
+
+            long timestamp = this.buffer.getLong(position + 4);
+            byte[] bytes = new byte[length];
+            this.buffer.get(position + RECORD_HEADER_SIZE, bytes);
+            position += RECORD_HEADER_SIZE + length;
+
+            try {
+                records.add(new Record(Any.parseFrom(bytes), timestamp));
+            } catch (InvalidProtocolBufferException exception) {
+                LOGGER.error("Skipping corrupt journal record", exception);
+            }
+        }
+        return new Batch(records, position);
+    }
+
+    /**
+     * Removes every record before the given position, which must be the end position of a batch from {@link #peek(int)}.
+     */
+    synchronized void advance(int position) {
+        if (position < this.readPosition || position > this.writePosition) return; // the journal was changed since
+
+        this.readPosition = position;
+        if (this.readPosition == this.writePosition) {
+            // Everything has been read, so we can start writing from the beginning again
+            this.reset();
+        } else {
+            this.buffer.putLong(READ_POSITION_OFFSET, this.readPosition);
+        }
+    }
+
+    /**
+     * Puts the given messages in front of everything currently in the journal, so they are read first.
+     *
+     * @return the messages that didn't fit in the journal
+     */
+    synchronized @NotNull List<Any> prepend(@NotNull List<Any> messages, long timestamp) {
+        List<Record> existing = new ArrayList<>();
+        Record record;
+        while ((record = this.poll()) != null) {
+            existing.add(record);
+        }
+
+        List<Any> overflow = new ArrayList<>();
+        for (Any message : messages) {
+            if (!this.append(message, timestamp)) overflow.add(message);
+        }
+        for (Record existingRecord : existing) {
+            if (!this.append(existingRecord.message(), existingRecord.timestamp())) overflow.add(existingRecord.message());
+        }
+        return overflow;
+    }
+
+    synchronized boolean isEmpty() {
+        return this.readPosition == this.writePosition;
+    }
+
+    /**
+     * @return the amount of bytes used by records that haven't been read yet
+     */
+    synchronized int size() {
+        return this.writePosition - this.readPosition;
+    }
+
+    /**
+     * Writes the journal to disk. This isn't needed for the journal to survive the process restarting, as the
+     * operating system keeps the changes to the mapping, only for it to survive the machine going down.
+     */
+    synchronized void force() {
+        this.buffer.force();
+    }
+
+    private void reset() {
+        this.readPosition = HEADER_SIZE;
+        this.writePosition = HEADER_SIZE;
+        this.buffer.putLong(READ_POSITION_OFFSET, this.readPosition);
+        this.buffer.putLong(WRITE_POSITION_OFFSET, this.writePosition);
+    }
+
+    record Record(@NotNull Any message, long timestamp) {
+    }
+
+    record Batch(@NotNull List<Record> records, int endPosition) {
+    }
+}
@@ -0,0 +1,370 @@
+package dev.emortal.minestom.gamesdk.internal;
+
+import com.google.protobuf.AbstractMessage;
+import com.google.protobuf.Any;
+import com.google.protobuf.InvalidProtocolBufferException;
+import dev.emortal.minestom.gamesdk.tracker.GameTrackerSink;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.LockSupport;
+
+/*
+ * A bounded queue of messages between the SDK and whatever publishes them, so that a slow broker can't make messages
+ * pile up in memory without limit.
+ *
+ * Messages are published in order by a single worker thread, which hands the sink everything that is waiting at the
+ * front of the queue (up to a limit) at once, so sinks that can write in batches can do so. Messages are only removed
+ * once the sink has acknowledged them, and a batch that fails is retried until it succeeds, so a slow or unavailable
+ * broker holds messages in the queue rather than in the producer's memory. When the queue is full, new messages are
+ * spilled to a journal on disk instead, and once the queue has drained, the journal is published from directly, again
+ * only removing records once they have been acknowledged. While anything is in the journal, new messages also go to
+ * the journal, so that messages are always published in the order they were sent.
+ *
+ * On shutdown, the outbox tries to publish everything that is left for a short while, and only what still hasn't been
+ * published by then is kept in the journal. The journal outlives the process, so that is replayed when the outbox is
+ * next started, as long as the disk it is on does too.
+ */
+public final class MessageOutbox {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MessageOutbox.class);
+
+    private static final int QUEUE_CAPACITY = SdkEnvironment.getInt("GAME_SDK_OUTBOX_CAPACITY", 1024);
+    private static final String JOURNAL_DIRECTORY = System.getenv().getOrDefault("GAME_SDK_OUTBOX_JOURNAL_DIR", "outbox");
+    // The journal is a single memory-mapped buffer, so it can't be larger than the largest buffer
+    private static final int JOURNAL_SIZE = (int) Math.min(SdkEnvironment.getInt("GAME_SDK_OUTBOX_JOURNAL_SIZE_MB", 64) * 1024L * 1024L,
+            Integer.MAX_VALUE);
+    private static final int MAX_BATCH_SIZE = 128;
+
+    private static final long ACK_TIMEOUT = TimeUnit.SECONDS.toMillis(30);
+    private static final long MIN_RETRY_DELAY = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final long MAX_RETRY_DELAY = TimeUnit.SECONDS.toNanos(5);
+    private static final long IDLE_WAIT = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final long SHUTDOWN_FLUSH_TIMEOUT = TimeUnit.SECONDS.toMillis(SdkEnvironment.getInt("GAME_SDK_OUTBOX_SHUTDOWN_FLUSH_SECONDS", 5));
+
+    private final @NotNull String name;
+    private final @NotNull GameTrackerSink sink;
+
+    private final @NotNull BlockingQueue<AbstractMessage> queue;
+    private final @Nullable MessageJournal journal;
+    // The message types that can be read back from the journal, by their type URL
+    private final @NotNull Map<String, Class<? extends AbstractMessage>> messageTypes = new ConcurrentHashMap<>();
+
+    // Guards spilling, so that nothing is added to the queue while the journal is being published from
+    private final @NotNull Object spillLock = new Object();
+    private boolean spilling = false;
+
+    private volatile boolean running = false;
+    // When the worker should give up publishing what's left after shutdown, as a System.nanoTime
+    private volatile long flushDeadline;
+    private volatile @Nullable Thread worker;
+
+    private final @NotNull Counter spilledCounter;
+    private final @NotNull Counter droppedCounter;
+    private final @NotNull Counter failedCounter;
+    private final @NotNull Timer replayLagTimer;
+    private final @NotNull DistributionSummary batchSizeSummary;
+
+    public MessageOutbox(@NotNull String name, @NotNull GameTrackerSink sink) {
+        this(name, sink, QUEUE_CAPACITY, Path.of(JOURNAL_DIRECTORY, name + ".journal"), JOURNAL_SIZE);
+    }
+
+    MessageOutbox(@NotNull String name, @NotNull GameTrackerSink sink, int queueCapacity, @NotNull Path journalPath, int journalSize) {
+        this.name = name;
+        this.sink = sink;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.journal = openJournal(journalPath, journalSize);
+
+        if (this.journal != null && !this.journal.isEmpty()) {
+            LOGGER.info("Outbox {} has {} bytes of messages left from a previous run to replay", name, this.journal.size());
+            this.spilling = true;
+        }
+
+        Gauge.builder("gamesdk.outbox.queue_depth", this.queue, BlockingQueue::size)
+                .tag("outbox", name)
+                .description("The amount of messages waiting to be published or acknowledged")
+                .register(Metrics.globalRegistry);
+        this.batchSizeSummary = DistributionSummary.builder("gamesdk.outbox.batch_size")
+                .tag("outbox", name)
+                .description("The amount of messages published to the sink at once")
+                .register(Metrics.globalRegistry);
+        Gauge.builder("gamesdk.outbox.journal_bytes", this, MessageOutbox::journalSize)
+                .tag("outbox", name)
+                .description("The amount of bytes of messages spilled to disk that are waiting to be replayed")
+                .register(Metrics.globalRegistry);
+        this.spilledCounter = Counter.builder("gamesdk.outbox.spilled_messages")
+                .tag("outbox", name)
+                .description("The amount of messages spilled to disk because the queue was full")
+                .register(Metrics.globalRegistry);
+        this.droppedCounter = Counter.builder("gamesdk.outbox.dropped_messages")
+                .tag("outbox", name)
+                .description("The amount of messages dropped because both the queue and the journal were full")
+                .register(Metrics.globalRegistry);
+        this.failedCounter = Counter.builder("gamesdk.outbox.failed_batches")
+                .tag("outbox", name)
+                .description("The amount of batches the sink failed to acknowledge, which are retried")
+                .register(Metrics.globalRegistry);
+        this.replayLagTimer = Timer.builder("gamesdk.outbox.replay_lag")
+                .tag("outbox", name)
+                .description("The time between a message being spilled to disk and it being published from the journal")
+                .register(Metrics.globalRegistry);
+    }
+
+    private static @Nullable MessageJournal openJournal(@NotNull Path path, int size) {
+        try {
+            return new MessageJournal(path, size);
+        } catch (IOException exception) {
+            LOGGER.error("Failed to open outbox journal {}. Messages will be dropped when the outbox is full.", path, exception);
+            return null;
+        }
+    }
+
+    /**
+     * Registers a type of message that is sent through this outbox, so that it can be read back from the journal.
+     *
+     * @param defaultInstance the default instance of the message type
+     */
+    public void registerMessageType(@NotNull AbstractMessage defaultInstance) {
+        this.messageTypes.put(Any.pack(defaultInstance).getTypeUrl(), defaultInstance.getClass());
+    }
+
+    /**
+     * Starts publishing messages. This should be called once all message types have been registered, as anything left
+     * in the journal is replayed straight away.
+     */
+    public void start() {
+        this.running = true;
+        this.worker = Thread.ofVirtual().name("outbox-" + this.name).start(this::run);
+    }
+
+    public void send(@NotNull AbstractMessage message) {
+        synchronized (this.spillLock) {
+            // Without a journal, there's nothing older to wait behind
+            if ((!this.spilling || this.journal == null) && this.queue.offer(message)) {
+                Thread worker = this.worker;
+                if (worker != null) LockSupport.unpark(worker);
+                return;
+            }
+
+            // Either the queue is full, or older messages are in the journal and this has to go behind them
+            this.spilling = true;
+            this.spill(message);
+        }
+    }
+
+    private void spill(@NotNull AbstractMessage message) {
+        if (this.journal != null && this.journal.append(Any.pack(message), System.currentTimeMillis())) {
+            this.spilledCounter.increment();
+            return;
+        }
+
+        this.droppedCounter.increment();
+        LOGGER.error("Dropped message {} from outbox {} as it is full", message.getDescriptorForType().getFullName(), this.name);
+    }
+
+    private void run() {
+        long retryDelay = MIN_RETRY_DELAY;
+        while (!Thread.currentThread().isInterrupted()) {
+            // After shutdown, keep going until everything is published or the deadline has passed
+            if (!this.running && System.nanoTime() - this.flushDeadline >= 0) break;
+
+            try {
+                Batch batch = this.nextBatch();
+                if (batch == null) {
+                    if (!this.running) break; // everything has been published
+
+                    LockSupport.parkNanos(IDLE_WAIT);
+                    continue;
+                }
+
+                if (this.publish(batch.messages())) {
+                    batch.acknowledge().run();
+                    retryDelay = MIN_RETRY_DELAY;
+                } else {
+                    // Try the same batch again, backing off so an unavailable broker isn't hammered
+                    LockSupport.parkNanos(retryDelay);
+                    retryDelay = Math.min(retryDelay * 2, MAX_RETRY_DELAY);
+                }
+            } catch (Exception exception) {
+                LOGGER.error("An error occurred in outbox {}", this.name, exception);
+            }
+        }
+    }
+
+    // Gets the oldest messages that haven't been published yet, without removing them
+    private @Nullable Batch nextBatch() {
+        if (this.queue.isEmpty()) return this.nextJournalBatch();
+
+        // This is the only thread that removes from the queue, so the messages at the front stay there until we remove them
+        List<AbstractMessage> messages = new ArrayList<>(Math.min(this.queue.size(), MAX_BATCH_SIZE));
+        for (AbstractMessage message : this.queue) {
+            messages.add(message);
+            if (messages.size() == MAX_BATCH_SIZE) break;
+        }
+
+        return new Batch(messages, () -> {
+            for (int i = 0; i < messages.size(); i++) {
+                this.queue.poll();
+            }
+        });
+    }
+
+    // Called when the queue is empty, to publish the oldest records in the journal
+    private @Nullable Batch nextJournalBatch() {
+        MessageJournal journal = this.journal;
+        synchronized (this.spillLock) {
+            if (!this.spilling) return null;
+            if (journal == null || journal.isEmpty()) {
+                // Caught up, so messages can go straight into the queue again
+                this.spilling = false;
+                return null;
+            }
+        }
+
+        MessageJournal.Batch records = journal.peek(MAX_BATCH_SIZE);
+        List<AbstractMessage> messages = new ArrayList<>(records.records().size());
+        for (MessageJournal.Record record : records.records()) {
+            AbstractMessage message = this.unpack(record.message());
+            if (message != null) messages.add(message);
+        }
+
+        return new Batch(messages, () -> {
+            journal.advance(records.endPosition());
+
+            long now = System.currentTimeMillis();
+            for (MessageJournal.Record record : records.records()) {
+                this.replayLagTimer.record(Math.max(now - record.timestamp(), 0), TimeUnit.MILLISECONDS);
+            }
+        });
+    }
+
+    /**
+     * @return true if the sink acknowledged every message
+     */
+    private boolean publish(@NotNull List<AbstractMessage> messages) {
+        if (messages.isEmpty()) return true; // e.g. every record in a journal batch was unreadable
+
+        this.batchSizeSummary.record(messages.size());
+        try {
+            this.sink.publishBatch(messages).get(ACK_TIMEOUT, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (InterruptedException exception) {
+            // Only happens when shutdown gives up waiting, so the batch is kept for the journal
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException | TimeoutException | RuntimeException exception) {
+            if (Thread.currentThread().isInterrupted()) return false; // the sink gave up because shutdown interrupted it
+
+            this.failedCounter.increment();
+            Throwable cause = exception instanceof ExecutionException ? exception.getCause() : exception;
+            LOGGER.error("Failed to publish {} messages from outbox {}, retrying", messages.size(), this.name, cause);
+            return false;
+        }
+    }
+
+    private @Nullable AbstractMessage unpack(@NotNull Any packed) {
+        Class<? extends AbstractMessage> type = this.messageTypes.get(packed.getTypeUrl());
+        if (type == null) {
+            LOGGER.error("Dropping journaled message of unknown type {} from outbox {}", packed.getTypeUrl(), this.name);
+            return null;
+        }
+
+        try {
+            return packed.unpack(type);
+        } catch (InvalidProtocolBufferException exception) {
+            LOGGER.error("Dropping journaled message of type {} from outbox {} as it is invalid", packed.getTypeUrl(), this.name, exception);
+            return null;
+        }
+    }
+
+    /**
+     * Stops accepting new work and tries to publish everything that is left, waiting up to a few seconds for it to
+     * be acknowledged. Anything that still hasn't been published by then is moved to the journal, so it is replayed
+     * on the next start. The sink is closed once the worker has stopped.
+     */
+    public void shutdown() {
+        this.flushDeadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(SHUTDOWN_FLUSH_TIMEOUT);
+        this.running = false;
+
+        Thread worker = this.worker;
+        if (worker != null) {
+            LockSupport.unpark(worker);
+            try {
+                worker.join(SHUTDOWN_FLUSH_TIMEOUT);
+                if (worker.isAlive()) {
+                    // Most likely stuck waiting for an acknowledgement that isn't coming. Sinks give up when they're
+                    // interrupted, and the sink can't be closed while the worker could still be publishing to it.
+                    worker.interrupt();
+                    worker.join();
+                }
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        if (worker == null || !worker.isAlive()) {
+            this.sink.close();
+        } else {
+            LOGGER.error("Interrupted while waiting for outbox {} to stop, not closing its sink", this.name);
+        }
+
+        synchronized (this.spillLock) {
+            List<Any> remaining = new ArrayList<>();
+            AbstractMessage message;
+            while ((message = this.queue.poll()) != null) {
+                remaining.add(Any.pack(message));
+            }
+
+            if (this.journal == null) {
+                if (!remaining.isEmpty()) LOGGER.error("Dropped {} messages from outbox {} on shutdown", remaining.size(), this.name);
+                return;
+            }
+
+            if (!remaining.isEmpty() || !this.journal.isEmpty()) {
+                LOGGER.warn("Outbox {} couldn't publish everything before shutting down, keeping {} messages and {} bytes in the journal",
+                        this.name, remaining.size(), this.journal.size());
+            }
+
+            // The queued messages are older than anything in the journal, so they have to go in front
+            List<Any> overflow = remaining.isEmpty() ? List.of() : this.journal.prepend(remaining, System.currentTimeMillis());
+            this.journal.force();
+            if (!overflow.isEmpty()) {
+                this.droppedCounter.increment(overflow.size());
+                LOGGER.error("Dropped {} messages from outbox {} on shutdown as the journal is full", overflow.size(), this.name);
+            }
+        }
+    }
+
+    /**
+     * @return how full the queue is, from 0 (empty) to 1 (full, so messages are being spilled to disk)
+     */
+    double getQueueFill() {
+        int size = this.queue.size();
+        return (double) size / (size + this.queue.remainingCapacity());
+    }
+
+    private double journalSize() {
+        return this.journal != null ? this.journal.size() : 0;
+    }
+
+    // Messages that have been read for publishing, and how to remove them once they have been acknowledged
+    private record Batch(@NotNull List<AbstractMessage> messages, @NotNull Runnable acknowledge) {
+    }
+}
@@ -0,0 +1,187 @@
+package dev.emortal.minestom.gamesdk.internal;
+
+import dev.emortal.minestom.gamesdk.MinestomGameServer;
+import dev.emortal.minestom.gamesdk.config.GameCreationInfo;
+import dev.emortal.minestom.gamesdk.config.GameSdkConfig;
+import dev.emortal.minestom.gamesdk.game.Game;
+import dev.emortal.minestom.gamesdk.internal.listener.GameStatusListener;
+import net.minestom.server.MinecraftServer;
+import net.minestom.server.event.player.PlayerSpawnEvent;
+import net.minestom.server.timer.TaskSchedule;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * Waits for the players of newly created games to spawn, and starts each game once all of its players have spawned or
+ * its start timeout has passed, whichever comes first.
+ *
+ * There is a single spawn listener shared by all the pending games, which finds the spawning player's pending game by
+ * their ID and the game they're in, so a spawn costs the same no matter how many games are waiting to start. A player
+ * can be pending in more than one game (e.g. matched again before spawning), and each of those games counts them
+ * separately. The start timeouts are all on one deadline wheel, which is advanced every tick, so the timeouts run on
+ * the tick thread. A game that finishes before it starts stops waiting, so players that never spawned don't keep it
+ * pending.
+ */
+final class PreGameDispatcher implements GameStatusListener {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PreGameDispatcher.class);
+
+    // Ticks are 50 ms, so the wheel turns every ~13 seconds
+    private static final long DEADLINE_TICK_MILLIS = 50;
+    private static final int DEADLINE_WHEEL_SIZE = 256;
+
+    private final @NotNull GameManager gameManager;
+    private final @NotNull GameSdkConfig config;
+
+    // The pending games of each player that hasn't spawned into them yet. The lists are immutable and replaced on every
+    // change, as players are almost always pending in only one game.
+    private final @NotNull Map<UUID, List<PendingGame>> pendingGames = new ConcurrentHashMap<>();
+    private final @NotNull DeadlineWheel timeouts = new DeadlineWheel("pre_game", DEADLINE_TICK_MILLIS, DEADLINE_WHEEL_SIZE);
+
+    PreGameDispatcher(@NotNull GameManager gameManager, @NotNull GameSdkConfig config) {
+        this.gameManager = gameManager;
+        this.config = config;
+
+        GameEventNodes.PRE_GAME.addListener(PlayerSpawnEvent.class, this::onSpawn);
+        gameManager.addGameStatusListener(this);
+
+        MinecraftServer.getSchedulerManager()
+                .buildTask(() -> this.timeouts.advance(System.currentTimeMillis()))
+                .repeat(TaskSchedule.nextTick())
+                .schedule();
+    }
+
+    void addGame(@NotNull Game game) {
+        PendingGame pendingGame = new PendingGame(game);
+        for (UUID playerId : game.getCreationInfo().playerIds()) {
+            this.pendingGames.compute(playerId, (id, games) -> {
+                if (games == null) return List.of(pendingGame);
+
+                LOGGER.warn("Player {} is waiting to spawn in game {} and game {}", id, games.getFirst().game.getCreationInfo().id(),
+                        game.getCreationInfo().id());
+                List<PendingGame> newGames = new ArrayList<>(games);
+                newGames.add(pendingGame);
+                return List.copyOf(newGames);
+            });
+        }
+
+        // If in test mode, we don't want a countdown
+        if (!MinestomGameServer.TEST_MODE) {
+            this.timeouts.schedule(pendingGame.timeout, System.currentTimeMillis() + this.config.startTimeout() * 1000L);
+        }
+    }
+
+    @Override
+    public void onGameFinish(@NotNull Game game) {
+        // Without a timeout (e.g. in test mode), nothing else would remove the players that never spawned
+        for (UUID playerId : game.getCreationInfo().playerIds()) {
+            PendingGame pendingGame = this.findPendingGame(playerId, game);
+            if (pendingGame != null) {
+                pendingGame.resolve();
+                return;
+            }
+        }
+    }
+
+    private void onSpawn(@NotNull PlayerSpawnEvent event) {
+        UUID playerId = event.getPlayer().getUuid();
+        if (!this.pendingGames.containsKey(playerId)) return;
+
+        // Only the game they're spawning into counts them, not any other game they're still pending in
+        Game game = this.gameManager.findGame(playerId);
+        if (game == null) return;
+        PendingGame pendingGame = this.findPendingGame(playerId, game);
+        if (pendingGame == null) return;
+
+        // Remove the player so they are only counted once, even if they spawn again (e.g. changing instance)
+        if (!this.removePendingGame(playerId, pendingGame)) return;
+        pendingGame.onPlayerSpawn();
+    }
+
+    private @Nullable PendingGame findPendingGame(@NotNull UUID playerId, @NotNull Game game) {
+        List<PendingGame> games = this.pendingGames.get(playerId);
+        if (games == null) return null;
+
+        for (PendingGame pendingGame : games) {
+            if (pendingGame.game == game) return pendingGame;
+        }
+        return null;
+    }
+
+    /**
+     * @return whether the player was still pending in the game
+     */
+    private boolean removePendingGame(@NotNull UUID playerId, @NotNull PendingGame pendingGame) {
+        AtomicBoolean removed = new AtomicBoolean(false);
+        this.pendingGames.computeIfPresent(playerId, (id, games) -> {
+            if (!games.contains(pendingGame)) return games;
+
+            removed.set(true);
+            if (games.size() == 1) return null;
+            List<PendingGame> newGames = new ArrayList<>(games);
+            newGames.remove(pendingGame);
+            return List.copyOf(newGames);
+        });
+        return removed.get();
+    }
+
+    private final class PendingGame {
+
+        private final @NotNull Game game;
+        private final @NotNull DeadlineWheel.Deadline timeout = new DeadlineWheel.Deadline(this::timeOut);
+
+        private final @NotNull AtomicInteger playerCount = new AtomicInteger();
+        // Whether the game has been started or finished, so that only one of the two ever happens
+        private final @NotNull AtomicBoolean resolved = new AtomicBoolean(false);
+
+        PendingGame(@NotNull Game game) {
+            this.game = game;
+        }
+
+        void onPlayerSpawn() {
+            GameCreationInfo creationInfo = this.game.getCreationInfo();
+            int newCount = this.playerCount.incrementAndGet();
+            if (newCount != creationInfo.playerIds().size()) return;
+            if (!this.resolve()) return;
+
+            LOGGER.info("Starting game {} early because all players have joined", creationInfo.id());
+            PreGameDispatcher.this.gameManager.getJoinLatencyTracer().markStartReason(this.game, "all_joined");
+            PreGameDispatcher.this.gameManager.startGame(this.game);
+        }
+
+        private void timeOut() {
+            if (!this.resolve()) return;
+
+            // The game may have already finished, e.g. because every player that joined left again
+            if (PreGameDispatcher.this.gameManager.getGame(this.game.getCreationInfo().id()) != this.game) return;
+
+            int actualPlayerCount = this.game.getPlayers().size();
+            if (actualPlayerCount >= PreGameDispatcher.this.config.minPlayers()) {
+                PreGameDispatcher.this.gameManager.getJoinLatencyTracer().markStartReason(this.game, "timeout");
+                PreGameDispatcher.this.gameManager.startGame(this.game);
+            } else {
+                // TODO: This isn't a normal finish. We should inform players that the game couldn't start and send them back to the lobby.
+                this.game.finish();
+            }
+        }
+
+        private boolean resolve() {
+            if (!this.resolved.compareAndSet(false, true)) return false;
+
+            PreGameDispatcher.this.timeouts.cancel(this.timeout);
+            for (UUID playerId : this.game.getCreationInfo().playerIds()) {
+                PreGameDispatcher.this.removePendingGame(playerId, this);
+            }
+            return true;
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package dev.emortal.minestom.gamesdk.internal;
 
 import dev.emortal.minestom.gamesdk.game.Game;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
 import net.minestom.server.entity.Player;
 import net.minestom.server.event.Event;
 import net.minestom.server.event.EventNode;
@@ -15,9 +17,13 @@ final class ProductionGameHandler {
     private static final Logger LOGGER = LoggerFactory.getLogger(ProductionGameHandler.class);
 
     private final @NotNull GameManager gameManager;
+    private final @NotNull Counter unreservedJoins;
 
     ProductionGameHandler(@NotNull GameManager gameManager) {
         this.gameManager = gameManager;
+        this.unreservedJoins = Counter.builder("gamesdk.unreserved_joins")
+                .description("The amount of players that joined without being matched into a game on this server")
+                .register(Metrics.globalRegistry);
 
         EventNode<Event> eventNode = GameEventNodes.GAME_MANAGER;
         eventNode.addListener(AsyncPlayerConfigurationEvent.class, this::onJoin);
@@ -28,20 +34,15 @@ final class ProductionGameHandler {
     private void onJoin(@NotNull AsyncPlayerConfigurationEvent event) {
         Player player = event.getPlayer();
 
-        Game game = null;
-        for (Game currentGame : this.gameManager.getGames()) {
-            if (!currentGame.getCreationInfo().playerIds().contains(player.getUuid())) continue; // the game is not for this player
-
-            game = currentGame;
-            break;
-        }
-
+        Game game = this.gameManager.findMatchedGame(player.getUuid());
         if (game == null) {
             LOGGER.error("No game could be found for player {}", player.getUsername());
+            this.unreservedJoins.increment();
             return;
         }
 
-        GamePlayerTracker.addPlayer(game, player);
+        this.gameManager.getJoinLatencyTracer().markPlayerJoined(game, player.getUuid());
+        this.gameManager.addReservedPlayer(game, player);
 
         event.setSpawningInstance(game.getSpawningInstance(player));
     }
@@ -49,19 +50,14 @@ final class ProductionGameHandler {
     void onSpawn(@NotNull PlayerSpawnEvent event) {
         Player player = event.getPlayer();
 
-        Game game = null;
-        for (Game currentGame : this.gameManager.getGames()) {
-            if (!currentGame.getCreationInfo().playerIds().contains(player.getUuid())) continue; // the game is not for this player
-
-            game = currentGame;
-            break;
-        }
-
+        // They were added to the game when they joined, so they're found by the game they're in now
+        Game game = this.gameManager.findGame(player.getUuid());
         if (game == null) {
             LOGGER.error("No game could be found for player {}", player.getUsername());
             return;
         }
 
+        this.gameManager.getJoinLatencyTracer().markPlayerSpawned(game, player.getUuid());
         game.onJoin(player);
     }
 
@@ -69,9 +65,9 @@ final class ProductionGameHandler {
     private void onLeave(@NotNull PlayerDisconnectEvent event) {
         Player player = event.getPlayer();
 
-        Game game = this.gameManager.findGame(player);
+        Game game = this.gameManager.findGame(player.getUuid());
         if (game == null) return;
 
-        GamePlayerTracker.removePlayer(game, player);
+        this.gameManager.getPlayerTracker().removePlayer(game, player);
     }
 }
@@ -0,0 +1,23 @@
+package dev.emortal.minestom.gamesdk.internal;
+
+import org.jetbrains.annotations.NotNull;
+
+/*
+ * Reads the SDK's settings that come from the deployment, rather than from the game's config.
+ */
+final class SdkEnvironment {
+
+    static int getInt(@NotNull String name, int defaultValue) {
+        String value = System.getenv(name);
+        if (value == null) return defaultValue;
+
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException exception) {
+            return defaultValue;
+        }
+    }
+
+    private SdkEnvironment() {
+    }
+}
@@ -0,0 +1,49 @@
+package dev.emortal.minestom.gamesdk.internal;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import net.minestom.server.MinecraftServer;
+import net.minestom.server.event.server.ServerTickMonitorEvent;
+
+/*
+ * Keeps a moving average of how long the server takes to tick, so the SDK can back off when the tick loop is busy.
+ *
+ * The average is exponentially weighted, so that a single slow tick (e.g. a GC pause) doesn't count as the server being
+ * under load, but a sustained rise does within a second or two.
+ */
+final class ServerTickMonitor {
+    // Each tick moves the average 5% of the way towards that tick's time, so it mostly reflects the last ~20 ticks
+    private static final double SMOOTHING = 0.05;
+
+    // Only written from the tick thread
+    private volatile double averageTickTime = 0;
+
+    ServerTickMonitor() {
+        GameEventNodes.GAME_MANAGER.addListener(ServerTickMonitorEvent.class, this::onTick);
+
+        Gauge.builder("gamesdk.average_tick_time", this, ServerTickMonitor::getAverageTickTime)
+                .baseUnit("milliseconds")
+                .description("The moving average of the time taken to tick the server")
+                .register(Metrics.globalRegistry);
+    }
+
+    private void onTick(ServerTickMonitorEvent event) {
+        double tickTime = event.getTickMonitor().getTickTime();
+        this.averageTickTime += (tickTime - this.averageTickTime) * SMOOTHING;
+    }
+
+    /**
+     * @return the average tick time, in milliseconds
+     */
+    double getAverageTickTime() {
+        return this.averageTickTime;
+    }
+
+    /**
+     * @return the average tick time as a fraction of the time available for each tick, where 1 means the server is
+     * only just keeping up
+     */
+    double getTickLoad() {
+        return this.averageTickTime / MinecraftServer.TICK_MS;
+    }
+}
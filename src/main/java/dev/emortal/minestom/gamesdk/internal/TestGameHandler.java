@@ -68,12 +68,17 @@ final class TestGameHandler {
 
     private static final class GameHolder {
 
+        private final @NotNull GamePlayerTracker playerTracker;
         private final @NotNull Game game;
 
         private final @NotNull Set<UUID> players = new HashSet<>();
 
         GameHolder(@NotNull GameManager gameManager) {
-            GameCreationInfo creationInfo = new GameCreationInfo(Match.getDefaultInstance(), Collections.unmodifiableSet(this.players));
+            this.playerTracker = gameManager.getPlayerTracker();
+
+            // Games are registered by ID, so each test game needs its own, as the old one is still registered after a reset
+            Match match = Match.newBuilder().setId("test-" + UUID.randomUUID()).build();
+            GameCreationInfo creationInfo = new GameCreationInfo(match, Collections.unmodifiableSet(this.players));
             this.game = gameManager.createGame(creationInfo);
         }
 
@@ -81,7 +86,7 @@ final class TestGameHandler {
             Player player = event.getPlayer();
 
             this.players.add(player.getUuid());
-            GamePlayerTracker.addPlayer(this.game, player);
+            this.playerTracker.addPlayer(this.game, player);
 
             event.setSpawningInstance(this.game.getSpawningInstance(player));
         }
@@ -96,7 +101,7 @@ final class TestGameHandler {
 
         void onLeave(@NotNull Player player) {
             this.players.remove(player.getUuid());
-            GamePlayerTracker.removePlayer(this.game, player);
+            this.playerTracker.removePlayer(this.game, player);
         }
 
         boolean shouldReset() {
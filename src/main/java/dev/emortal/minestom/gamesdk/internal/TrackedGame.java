@@ -0,0 +1,136 @@
+package dev.emortal.minestom.gamesdk.internal;
+
+import com.google.protobuf.Any;
+import com.google.protobuf.Message;
+import dev.emortal.api.message.gametracker.CommonGameData;
+import dev.emortal.minestom.gamesdk.game.Game;
+import dev.emortal.minestom.gamesdk.util.BasicGamePlayerConverter;
+import net.minestom.server.entity.Player;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/*
+ * The state the game tracker keeps for each game it is tracking.
+ */
+final class TrackedGame {
+
+    private final @NotNull Game game;
+    // The common data without any players, which is the same for every message of the game
+    private final @NotNull CommonGameData staticCommonData;
+
+    // The common data is only rebuilt when the players change, which we know from the player snapshot changing
+    private @Nullable List<Player> commonDataPlayers;
+    private @Nullable CommonGameData commonData;
+
+    // Runs a queued update once the minimum time between updates has passed
+    private final @NotNull DeadlineWheel.Deadline minIntervalUpdate;
+    // Runs an update if the game hasn't been updated for the maximum time between updates
+    private final @NotNull DeadlineWheel.Deadline maxIntervalUpdate;
+
+    private final @NotNull GameUpdateDeltaState deltaState = new GameUpdateDeltaState();
+
+    // For games that use dirty tracking, the last packed data of each section, which is reused until it is marked dirty
+    private final @NotNull Map<String, Any> packedSections = new HashMap<>();
+    // The common data sent in the last update, so we can tell if the players have changed since
+    private @Nullable CommonGameData lastPublishedCommonData;
+    // Set when the game hasn't been updated for the maximum interval, so the next update is sent even if nothing changed
+    private final @NotNull AtomicBoolean heartbeatDue = new AtomicBoolean(false);
+
+    private volatile boolean started = false;
+
+    TrackedGame(@NotNull Game game, @NotNull CommonGameData staticCommonData, @NotNull Runnable minIntervalUpdate,
+                @NotNull Runnable maxIntervalUpdate) {
+        this.game = game;
+        this.staticCommonData = staticCommonData;
+        this.minIntervalUpdate = new DeadlineWheel.Deadline(minIntervalUpdate);
+        this.maxIntervalUpdate = new DeadlineWheel.Deadline(maxIntervalUpdate);
+    }
+
+    @NotNull Game game() {
+        return this.game;
+    }
+
+    synchronized @NotNull CommonGameData commonData() {
+        List<Player> players = this.game.getPlayerSnapshot();
+        if (players == this.commonDataPlayers && this.commonData != null) return this.commonData;
+
+        CommonGameData.Builder builder = this.staticCommonData.toBuilder();
+        for (Player player : players) {
+            builder.addPlayers(BasicGamePlayerConverter.fromMinestomPlayer(player));
+        }
+
+        this.commonData = builder.build();
+        this.commonDataPlayers = players;
+        return this.commonData;
+    }
+
+    @NotNull DeadlineWheel.Deadline minIntervalUpdate() {
+        return this.minIntervalUpdate;
+    }
+
+    @NotNull DeadlineWheel.Deadline maxIntervalUpdate() {
+        return this.maxIntervalUpdate;
+    }
+
+    @NotNull GameUpdateDeltaState deltaState() {
+        return this.deltaState;
+    }
+
+    /**
+     * Packs the sections that are dirty or haven't been packed yet.
+     *
+     * @return true if any section was packed
+     */
+    synchronized boolean updateSections(@NotNull List<String> sections, @NotNull Set<String> dirtySections,
+                                        @NotNull Function<String, ? extends Message> sectionCreator) {
+        boolean updated = false;
+        for (String section : sections) {
+            if (!dirtySections.contains(section) && this.packedSections.containsKey(section)) continue;
+
+            this.packedSections.put(section, Any.pack(sectionCreator.apply(section)));
+            updated = true;
+        }
+        return updated;
+    }
+
+    synchronized @NotNull List<Any> getPackedSections(@NotNull List<String> sections) {
+        List<Any> content = new ArrayList<>(sections.size());
+        for (String section : sections) {
+            Any packed = this.packedSections.get(section);
+            if (packed != null) content.add(packed);
+        }
+        return content;
+    }
+
+    synchronized boolean havePlayersChangedSincePublish(@NotNull CommonGameData commonData) {
+        return commonData != this.lastPublishedCommonData;
+    }
+
+    synchronized void markPublished(@NotNull CommonGameData commonData) {
+        this.lastPublishedCommonData = commonData;
+    }
+
+    void markHeartbeatDue() {
+        this.heartbeatDue.set(true);
+    }
+
+    boolean takeHeartbeatDue() {
+        return this.heartbeatDue.getAndSet(false);
+    }
+
+    boolean isStarted() {
+        return this.started;
+    }
+
+    void markStarted() {
+        this.started = true;
+    }
+}
@@ -0,0 +1,265 @@
+package dev.emortal.minestom.gamesdk.internal;
+
+import dev.emortal.minestom.gamesdk.config.GameCreationInfo;
+import dev.emortal.minestom.gamesdk.config.GameSdkConfig;
+import dev.emortal.minestom.gamesdk.game.AsyncGameCreator;
+import dev.emortal.minestom.gamesdk.game.Game;
+import dev.emortal.minestom.gamesdk.game.GameCreator;
+import dev.emortal.minestom.gamesdk.game.PreparedGameCreator;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Keeps resources prepared ahead of time for each map that matches are being created for, so that creating a game for a
+ * match only has to hand out resources that are already loaded.
+ *
+ * The maps in the config are warmed up as soon as the pool is created, and are kept warm for as long as the server runs.
+ * Other maps are learned from the matches that arrive. The first match for one of those is a miss, and the game is
+ * created the slow way, but from then on the pool keeps that many games' worth of resources ready for the map, refilling
+ * in the background every time some are taken. A learned map's resources are discarded if no match has been created for
+ * it for the idle timeout.
+ *
+ * If the game creator is also an AsyncGameCreator, misses are created through it when games are created asynchronously,
+ * so a miss doesn't block match intake. Hits are always created on the calling thread, as the slow part is already done.
+ */
+final class WarmGamePool<R> implements AsyncGameCreator {
+    private static final Logger LOGGER = LoggerFactory.getLogger(WarmGamePool.class);
+
+    private static final ScheduledExecutorService EVICTION_SCHEDULER = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("warm-pool-eviction").daemon().factory());
+    private static final long EVICTION_INTERVAL_MILLIS = 10_000;
+    // Games without a map are all pooled together
+    private static final String NO_MAP = "";
+
+    /**
+     * @return a pool for the configured game creator, or the game creator itself if the pool is disabled or the game
+     * creator can't prepare games ahead of time
+     */
+    static @NotNull GameCreator create(@NotNull GameSdkConfig config) {
+        GameCreator creator = config.gameCreator();
+        if (config.warmPoolSize() <= 0) return creator;
+
+        if (!(creator instanceof PreparedGameCreator<?> preparedCreator)) {
+            LOGGER.warn("Warm pool is enabled, but the game creator doesn't implement PreparedGameCreator. Games will not be pooled.");
+            return creator;
+        }
+        return create(preparedCreator, config.warmPoolSize(), config.warmPoolIdleTimeout() * 1000L, config.warmPoolMaps());
+    }
+
+    private static <R> @NotNull WarmGamePool<R> create(@NotNull PreparedGameCreator<R> creator, int size, long idleTimeout,
+                                                       @NotNull List<String> maps) {
+        return new WarmGamePool<>(creator, size, idleTimeout, maps);
+    }
+
+    private final @NotNull PreparedGameCreator<R> creator;
+    private final int size;
+    private final long idleTimeout;
+
+    private final @NotNull Map<String, MapPool> pools = new ConcurrentHashMap<>();
+    private final @NotNull ExecutorService warmUpExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final @NotNull Counter hitCounter;
+    private final @NotNull Counter missCounter;
+    private final @NotNull Counter evictionCounter;
+    private final @NotNull Timer warmUpTimer;
+
+    private WarmGamePool(@NotNull PreparedGameCreator<R> creator, int size, long idleTimeout, @NotNull List<String> maps) {
+        this.creator = creator;
+        this.size = size;
+        this.idleTimeout = idleTimeout;
+
+        this.hitCounter = Counter.builder("gamesdk.warm_pool.requests")
+                .tag("result", "hit")
+                .description("The amount of games created, by whether prepared resources were available")
+                .register(Metrics.globalRegistry);
+        this.missCounter = Counter.builder("gamesdk.warm_pool.requests")
+                .tag("result", "miss")
+                .description("The amount of games created, by whether prepared resources were available")
+                .register(Metrics.globalRegistry);
+        this.evictionCounter = Counter.builder("gamesdk.warm_pool.evictions")
+                .description("The amount of prepared games discarded because their map was idle")
+                .register(Metrics.globalRegistry);
+        this.warmUpTimer = Timer.builder("gamesdk.warm_pool.warm_up_time")
+                .description("The time taken to prepare the resources for a game")
+                .register(Metrics.globalRegistry);
+        Gauge.builder("gamesdk.warm_pool.ready", this, WarmGamePool::readyCount)
+                .description("The amount of prepared games waiting to be used")
+                .register(Metrics.globalRegistry);
+        Gauge.builder("gamesdk.warm_pool.hit_rate", this, WarmGamePool::hitRate)
+                .description("The fraction of games created from prepared resources")
+                .register(Metrics.globalRegistry);
+
+        for (String mapId : maps) {
+            MapPool pool = new MapPool(mapId, true);
+            this.pools.put(mapId, pool);
+            pool.refill();
+        }
+
+        EVICTION_SCHEDULER.scheduleAtFixedRate(this::evictIdle, EVICTION_INTERVAL_MILLIS, EVICTION_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public @NotNull Game createGame(@NotNull GameCreationInfo info) {
+        R prepared = this.take(info);
+        return prepared != null ? this.creator.createGame(info, prepared) : this.creator.createGame(info);
+    }
+
+    @Override
+    public @NotNull CompletableFuture<Game> createGameAsync(@NotNull GameCreationInfo info) {
+        R prepared = this.take(info);
+        if (prepared == null && this.creator instanceof AsyncGameCreator asyncCreator) return asyncCreator.createGameAsync(info);
+
+        try {
+            Game game = prepared != null ? this.creator.createGame(info, prepared) : this.creator.createGame(info);
+            return CompletableFuture.completedFuture(game);
+        } catch (Exception exception) {
+            return CompletableFuture.failedFuture(exception);
+        }
+    }
+
+    private @Nullable R take(@NotNull GameCreationInfo info) {
+        String key = info.mapId() != null ? info.mapId() : NO_MAP;
+        MapPool pool = this.pools.computeIfAbsent(key, mapId -> new MapPool(mapId, false));
+
+        R prepared = pool.take();
+        // Start replacing what we took straight away, as preparing is what takes the time
+        pool.refill();
+
+        if (prepared == null) {
+            this.missCounter.increment();
+        } else {
+            this.hitCounter.increment();
+        }
+        return prepared;
+    }
+
+    private void evictIdle() {
+        long now = System.currentTimeMillis();
+        for (MapPool pool : this.pools.values()) {
+            if (pool.pinned || now - pool.lastRequested() < this.idleTimeout) continue;
+
+            // Removing by identity means we never evict a newer pool for the same map. A match that takes from this pool
+            // while it's being evicted still gets what it took, but nothing is refilled, and the next match for the map
+            // starts a new pool.
+            if (this.pools.remove(pool.mapId, pool)) pool.evict();
+        }
+    }
+
+    private double readyCount() {
+        int count = 0;
+        for (MapPool pool : this.pools.values()) {
+            count += pool.readyCount();
+        }
+        return count;
+    }
+
+    private double hitRate() {
+        double hits = this.hitCounter.count();
+        double total = hits + this.missCounter.count();
+        return total == 0 ? 0 : hits / total;
+    }
+
+    private final class MapPool {
+
+        private final @NotNull String mapId;
+        // Configured maps are never evicted
+        private final boolean pinned;
+
+        // All guarded by this
+        private final @NotNull Deque<R> ready = new ArrayDeque<>();
+        private int warming = 0;
+        private long lastRequested = System.currentTimeMillis();
+        private boolean evicted = false;
+
+        MapPool(@NotNull String mapId, boolean pinned) {
+            this.mapId = mapId;
+            this.pinned = pinned;
+        }
+
+        synchronized @Nullable R take() {
+            this.lastRequested = System.currentTimeMillis();
+            return this.ready.pollFirst();
+        }
+
+        synchronized void refill() {
+            while (!this.evicted && this.ready.size() + this.warming < WarmGamePool.this.size) {
+                this.warming++;
+                WarmGamePool.this.warmUpExecutor.execute(this::warmUp);
+            }
+        }
+
+        private void warmUp() {
+            R prepared;
+            long start = System.nanoTime();
+            try {
+                prepared = WarmGamePool.this.creator.prepare(this.mapId.equals(NO_MAP) ? null : this.mapId);
+            } catch (Exception exception) {
+                LOGGER.error("Failed to prepare a game for map {}", this.mapId, exception);
+                synchronized (this) {
+                    this.warming--;
+                }
+                return;
+            }
+            WarmGamePool.this.warmUpTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+            synchronized (this) {
+                this.warming--;
+                if (!this.evicted) {
+                    this.ready.addLast(prepared);
+                    return;
+                }
+            }
+            // The map went idle while this was being prepared
+            WarmGamePool.this.discard(prepared);
+        }
+
+        synchronized long lastRequested() {
+            return this.lastRequested;
+        }
+
+        synchronized int readyCount() {
+            return this.ready.size();
+        }
+
+        void evict() {
+            List<R> evicted;
+            synchronized (this) {
+                this.evicted = true;
+                evicted = new ArrayList<>(this.ready);
+                this.ready.clear();
+            }
+
+            if (!evicted.isEmpty()) LOGGER.info("Discarding {} prepared games for idle map {}", evicted.size(), this.mapId);
+            for (R prepared : evicted) {
+                WarmGamePool.this.discard(prepared);
+            }
+        }
+    }
+
+    private void discard(@NotNull R prepared) {
+        this.evictionCounter.increment();
+        try {
+            this.creator.discard(prepared);
+        } catch (Exception exception) {
+            LOGGER.error("Failed to discard prepared game", exception);
+        }
+    }
+}
@@ -1,48 +1,64 @@
 package dev.emortal.minestom.gamesdk.internal.listener;
 
-import dev.agones.sdk.AgonesSDKProto;
-import dev.agones.sdk.SDKGrpc;
-import dev.agones.sdk.beta.BetaAgonesSDKProto;
-import dev.emortal.api.agonessdk.IgnoredStreamObserver;
 import dev.emortal.minestom.core.module.kubernetes.KubernetesModule;
-import dev.emortal.minestom.gamesdk.config.GameSdkConfig;
 import dev.emortal.minestom.gamesdk.game.Game;
-
-import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicInteger;
-
-import dev.emortal.minestom.gamesdk.game.GameProvider;
+import dev.emortal.minestom.gamesdk.internal.GameManager;
 import net.minestom.server.MinecraftServer;
+import net.minestom.server.timer.Task;
+import net.minestom.server.timer.TaskSchedule;
 import org.jetbrains.annotations.NotNull;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import org.jetbrains.annotations.Nullable;
 
 public final class AgonesGameStatusListener implements GameStatusListener {
-    private static final Logger LOGGER = LoggerFactory.getLogger(AgonesGameStatusListener.class);
     private static final boolean DISABLE_AGONES_GAME_COUNTER = Boolean.parseBoolean(System.getenv("DISABLE_AGONES_GAME_COUNTER"));
+    // The fleet has to define these counters, so they are only reported when it says it does
+    private static final boolean ENABLE_AGONES_CAPACITY_COUNTERS = Boolean.parseBoolean(System.getenv("ENABLE_AGONES_CAPACITY_COUNTERS"));
+
+    private final @NotNull GameManager gameManager;
+    private final @NotNull AgonesUpdateWorker updateWorker;
+    private final @Nullable Task capacityReportTask;
+
+    public AgonesGameStatusListener(@NotNull GameManager gameManager, @NotNull KubernetesModule kubeModule) {
+        this(gameManager, new KubernetesAgonesOperations(kubeModule));
+    }
 
-    private final @NotNull GameProvider gameProvider;
-    private final @NotNull KubernetesModule kubeModule;
-    private final @NotNull SDKGrpc.SDKStub sdk;
+    public AgonesGameStatusListener(@NotNull GameManager gameManager, @NotNull AgonesOperations operations) {
+        this.gameManager = gameManager;
+        this.updateWorker = new AgonesUpdateWorker(operations, () -> gameManager.getGameCount() == 0);
+        this.updateWorker.start();
 
-    public AgonesGameStatusListener(@NotNull GameProvider gameProvider, @NotNull KubernetesModule kubeModule) {
-        this.kubeModule = kubeModule;
-        this.gameProvider = gameProvider;
-        this.sdk = kubeModule.getAgonesSdk();
+        if (ENABLE_AGONES_CAPACITY_COUNTERS) {
+            // The worker only makes a call for the counters that changed since they were last reported
+            this.capacityReportTask = MinecraftServer.getSchedulerManager()
+                    .buildTask(this::reportCapacity)
+                    .repeat(TaskSchedule.seconds(1))
+                    .schedule();
+        } else {
+            this.capacityReportTask = null;
+        }
+    }
+
+    private void reportCapacity() {
+        this.updateWorker.setCounter("players", this.gameManager.getActivePlayerCount());
+        this.updateWorker.setCounter("reserved_players", this.gameManager.getReservedPlayerCount());
+        this.updateWorker.setCounter("capacity", this.gameManager.getCapacityScore());
     }
 
     @Override
     public void onGameRemoved(@NotNull Game game) {
         if (DISABLE_AGONES_GAME_COUNTER) return;
 
-        Thread.startVirtualThread(() -> {
-            this.kubeModule.updateAgonesCounter("games", -1);
-            this.kubeModule.removeFromAgonesList("games", game.getCreationInfo().id());
+        this.updateWorker.updateCounter("games", -1);
+        this.updateWorker.removeFromList("games", game.getCreationInfo().id());
+
+        if (this.gameManager.getGameCount() == 0) {
+            // The worker checks again before sending it, in case a game was created in the meantime
+            this.updateWorker.requestReady();
+        }
+    }
 
-            if (this.gameProvider.getGameCount() == 0) {
-                LOGGER.info("Marking server as ready as no players are online.");
-                Thread.startVirtualThread(() -> this.sdk.ready(AgonesSDKProto.Empty.getDefaultInstance(), new IgnoredStreamObserver<>()));
-            }
-        });
+    public void shutdown() {
+        if (this.capacityReportTask != null) this.capacityReportTask.cancel();
+        this.updateWorker.shutdown();
     }
 }
@@ -0,0 +1,24 @@
+package dev.emortal.minestom.gamesdk.internal.listener;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * The calls the SDK makes to the Agones sidecar. This exists so that the calls can be pointed at something other than
+ * the real sidecar, such as a fake SDK server in tests.
+ *
+ * <p>
+ * Calls are only ever made from a single thread, in order, and may block.
+ */
+public interface AgonesOperations {
+
+    void updateCounter(@NotNull String counter, int delta);
+
+    /**
+     * Sets the counter's count to the given value, rather than changing it by an amount.
+     */
+    void setCounter(@NotNull String counter, long count);
+
+    void removeFromList(@NotNull String list, @NotNull String value);
+
+    void ready();
+}
@@ -0,0 +1,200 @@
+package dev.emortal.minestom.gamesdk.internal.listener;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BooleanSupplier;
+
+/*
+ * Makes all the SDK's Agones calls from a single thread, in the order they were requested, merging whatever piles up
+ * while a call is in progress.
+ *
+ * Pending counter changes are summed, so any amount of changes to a counter become a single call, and pending list
+ * removals are deduplicated. Counters can also be set to an absolute value, of which only the latest is ever sent, and
+ * only if it differs from the last value this worker set successfully. Counter changes are always sent before list
+ * removals, which are sent before Ready.
+ *
+ * Ready is debounced. It is only sent once nothing else has been requested for the debounce period, and only if the
+ * ready condition (e.g. there being no games left) still holds at that point, so a burst of games finishing, or a game
+ * being created straight after the last one finished, doesn't flap the server's state.
+ */
+final class AgonesUpdateWorker {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AgonesUpdateWorker.class);
+
+    static final long READY_DEBOUNCE_MILLIS = 500;
+
+    private final @NotNull AgonesOperations operations;
+    private final @NotNull BooleanSupplier readyCondition;
+
+    // All guarded by the lock
+    private final @NotNull Object lock = new Object();
+    private @NotNull Map<String, Integer> counterDeltas = new LinkedHashMap<>();
+    private @NotNull Map<String, Set<String>> listRemovals = new LinkedHashMap<>();
+    private @NotNull Map<String, Integer> counterTargets = new LinkedHashMap<>();
+    private boolean readyRequested = false;
+    private long lastRequestTime = 0;
+
+    // The last value each counter was set to. Only used by the worker thread.
+    private final @NotNull Map<String, Integer> reportedCounts = new HashMap<>();
+
+    private volatile boolean running = false;
+    private @Nullable Thread worker;
+
+    private final @NotNull Counter requestedCounter;
+    private final @NotNull Map<String, Counter> callCounters = new HashMap<>();
+
+    AgonesUpdateWorker(@NotNull AgonesOperations operations, @NotNull BooleanSupplier readyCondition) {
+        this.operations = operations;
+        this.readyCondition = readyCondition;
+
+        this.requestedCounter = Counter.builder("gamesdk.agones.requested_updates")
+                .description("The amount of Agones updates requested, before they are merged")
+                .register(Metrics.globalRegistry);
+        for (String operation : new String[]{"update_counter", "set_counter", "remove_from_list", "ready"}) {
+            this.callCounters.put(operation, Counter.builder("gamesdk.agones.calls")
+                    .tag("operation", operation)
+                    .description("The amount of calls made to the Agones sidecar")
+                    .register(Metrics.globalRegistry));
+        }
+    }
+
+    void start() {
+        this.running = true;
+        this.worker = Thread.ofVirtual().name("agones-updates").start(this::run);
+    }
+
+    void shutdown() {
+        this.running = false;
+        if (this.worker != null) this.worker.interrupt();
+    }
+
+    void updateCounter(@NotNull String counter, int delta) {
+        synchronized (this.lock) {
+            this.counterDeltas.merge(counter, delta, Integer::sum);
+            this.onRequest();
+        }
+    }
+
+    /**
+     * Sets the counter to the given value. If the counter is already at that value, no call is made.
+     */
+    void setCounter(@NotNull String counter, int value) {
+        synchronized (this.lock) {
+            this.counterTargets.put(counter, value);
+            this.lock.notifyAll();
+        }
+    }
+
+    void removeFromList(@NotNull String list, @NotNull String value) {
+        synchronized (this.lock) {
+            this.listRemovals.computeIfAbsent(list, key -> new LinkedHashSet<>()).add(value);
+            this.onRequest();
+        }
+    }
+
+    void requestReady() {
+        synchronized (this.lock) {
+            this.readyRequested = true;
+            this.onRequest();
+        }
+    }
+
+    private void onRequest() {
+        this.requestedCounter.increment();
+        this.lastRequestTime = System.currentTimeMillis();
+        this.lock.notifyAll();
+    }
+
+    private void run() {
+        while (this.running) {
+            try {
+                this.processNext();
+            } catch (InterruptedException exception) {
+                break;
+            } catch (Exception exception) {
+                LOGGER.error("An error occurred while updating Agones", exception);
+            }
+        }
+    }
+
+    private void processNext() throws InterruptedException {
+        Map<String, Integer> counterDeltas;
+        Map<String, Set<String>> listRemovals;
+        Map<String, Integer> counterTargets;
+        boolean ready = false;
+
+        synchronized (this.lock) {
+            while (this.counterDeltas.isEmpty() && this.listRemovals.isEmpty() && this.counterTargets.isEmpty()) {
+                if (!this.readyRequested) {
+                    this.lock.wait();
+                    continue;
+                }
+
+                long readyTime = this.lastRequestTime + READY_DEBOUNCE_MILLIS;
+                long now = System.currentTimeMillis();
+                if (now >= readyTime) {
+                    this.readyRequested = false;
+                    ready = true;
+                    break;
+                }
+                this.lock.wait(readyTime - now);
+            }
+
+            // Swap the pending maps out, so new requests can be merged while we're making the calls
+            counterDeltas = this.counterDeltas;
+            listRemovals = this.listRemovals;
+            counterTargets = this.counterTargets;
+            this.counterDeltas = new LinkedHashMap<>();
+            this.listRemovals = new LinkedHashMap<>();
+            this.counterTargets = new LinkedHashMap<>();
+        }
+
+        for (Map.Entry<String, Integer> entry : counterTargets.entrySet()) {
+            if (entry.getValue().equals(this.reportedCounts.get(entry.getKey()))) continue;
+
+            // The count is set outright, so a failed call, or one made before a restart, can't leave it wrong
+            boolean success = this.call("set_counter", () -> this.operations.setCounter(entry.getKey(), entry.getValue()));
+            if (success) {
+                this.reportedCounts.put(entry.getKey(), entry.getValue());
+            } else {
+                this.reportedCounts.remove(entry.getKey());
+            }
+        }
+
+        for (Map.Entry<String, Integer> entry : counterDeltas.entrySet()) {
+            // Changes that cancelled each other out don't need a call at all
+            if (entry.getValue() == 0) continue;
+            this.call("update_counter", () -> this.operations.updateCounter(entry.getKey(), entry.getValue()));
+        }
+        for (Map.Entry<String, Set<String>> entry : listRemovals.entrySet()) {
+            for (String value : entry.getValue()) {
+                this.call("remove_from_list", () -> this.operations.removeFromList(entry.getKey(), value));
+            }
+        }
+
+        if (ready && this.readyCondition.getAsBoolean()) {
+            LOGGER.info("Marking server as ready as no games are running.");
+            this.call("ready", this.operations::ready);
+        }
+    }
+
+    private boolean call(@NotNull String operation, @NotNull Runnable call) {
+        this.callCounters.get(operation).increment();
+        try {
+            call.run();
+            return true;
+        } catch (Exception exception) {
+            LOGGER.error("Failed to call Agones operation {}", operation, exception);
+            return false;
+        }
+    }
+}
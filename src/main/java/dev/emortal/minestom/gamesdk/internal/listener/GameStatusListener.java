@@ -11,6 +11,9 @@ public interface GameStatusListener {
     default void onGameStart(@NotNull Game game) {
     }
 
+    default void onGameUpdateRequest(@NotNull Game game) {
+    }
+
     default void onGameFinish(@NotNull Game game) {
     }
 
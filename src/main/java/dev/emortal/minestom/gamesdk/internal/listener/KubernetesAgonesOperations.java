@@ -0,0 +1,47 @@
+package dev.emortal.minestom.gamesdk.internal.listener;
+
+import com.google.protobuf.Int64Value;
+import dev.agones.sdk.AgonesSDKProto;
+import dev.agones.sdk.SDKGrpc;
+import dev.agones.sdk.beta.BetaAgonesSDKProto;
+import dev.emortal.api.agonessdk.IgnoredStreamObserver;
+import dev.emortal.minestom.core.module.kubernetes.KubernetesModule;
+import org.jetbrains.annotations.NotNull;
+
+public final class KubernetesAgonesOperations implements AgonesOperations {
+
+    private final @NotNull KubernetesModule kubeModule;
+    private final @NotNull SDKGrpc.SDKStub sdk;
+    // Counts and lists are only in the beta SDK, which is served on the same connection as the stable one
+    private final @NotNull dev.agones.sdk.beta.SDKGrpc.SDKBlockingStub betaSdk;
+
+    public KubernetesAgonesOperations(@NotNull KubernetesModule kubeModule) {
+        this.kubeModule = kubeModule;
+        this.sdk = kubeModule.getAgonesSdk();
+        this.betaSdk = dev.agones.sdk.beta.SDKGrpc.newBlockingStub(this.sdk.getChannel());
+    }
+
+    @Override
+    public void updateCounter(@NotNull String counter, int delta) {
+        this.kubeModule.updateAgonesCounter(counter, delta);
+    }
+
+    @Override
+    public void setCounter(@NotNull String counter, long count) {
+        BetaAgonesSDKProto.CounterUpdateRequest update = BetaAgonesSDKProto.CounterUpdateRequest.newBuilder()
+                .setName(counter)
+                .setCount(Int64Value.of(count))
+                .build();
+        this.betaSdk.updateCounter(BetaAgonesSDKProto.UpdateCounterRequest.newBuilder().setCounterUpdateRequest(update).build());
+    }
+
+    @Override
+    public void removeFromList(@NotNull String list, @NotNull String value) {
+        this.kubeModule.removeFromAgonesList(list, value);
+    }
+
+    @Override
+    public void ready() {
+        this.sdk.ready(AgonesSDKProto.Empty.getDefaultInstance(), new IgnoredStreamObserver<>());
+    }
+}
@@ -0,0 +1,17 @@
+package dev.emortal.minestom.gamesdk.map;
+
+import net.minestom.server.instance.InstanceContainer;
+import org.jetbrains.annotations.NotNull;
+
+@FunctionalInterface
+public interface MapLoader {
+
+    /**
+     * Loads the map with the given ID into a new instance container. All the chunks the games need must be loaded by the
+     * time this returns, as the container is used as a template and is never played in itself.
+     *
+     * <p>
+     * The container must not be registered, as the cache registers it.
+     */
+    @NotNull InstanceContainer load(@NotNull String mapId) throws Exception;
+}
@@ -0,0 +1,270 @@
+package dev.emortal.minestom.gamesdk.map;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import net.minestom.server.MinecraftServer;
+import net.minestom.server.instance.Chunk;
+import net.minestom.server.instance.InstanceContainer;
+import net.minestom.server.instance.SharedInstance;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loads each map once and keeps it as a template that games get their instances from, so that games on the same map
+ * don't each load their own copy of its chunks.
+ *
+ * <p>
+ * Games that don't change the map should use {@link #createSharedInstance(String)}, which shares the template's chunks
+ * and costs almost nothing. Games that do change the map should use {@link #createCopy(String)}, which copies the
+ * template's chunks in memory, so it's still much cheaper than loading them again.
+ *
+ * <p>
+ * The cache is bounded by both the amount of templates and their estimated size, evicting the least recently used
+ * templates first. Templates that still have shared instances are never evicted, as those instances depend on them.
+ */
+public final class MapTemplateCache {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MapTemplateCache.class);
+
+    // A rough estimate of the memory used by a chunk section: the block and biome palettes plus block and sky light
+    private static final long ESTIMATED_SECTION_BYTES = 12 * 1024;
+
+    private final @NotNull MapLoader loader;
+    private final int maxTemplates;
+    private final long maxResidentBytes;
+
+    // In access order, so iteration goes from least to most recently used. All guarded by the lock.
+    private final @NotNull Object lock = new Object();
+    private final @NotNull Map<String, CompletableFuture<Template>> templates = new LinkedHashMap<>(16, 0.75F, true);
+    // Templates that were invalidated while they still had shared instances, which are unloaded once those are gone
+    private final @NotNull List<Template> retired = new ArrayList<>();
+    private long residentBytes = 0;
+
+    private final @NotNull Counter hitCounter;
+    private final @NotNull Counter evictionCounter;
+    private final @NotNull Timer loadTimer;
+
+    /**
+     * @param loader           loads a map when it isn't in the cache
+     * @param maxTemplates     the maximum amount of templates to keep loaded
+     * @param maxResidentBytes the maximum estimated size of all the templates kept loaded
+     */
+    public MapTemplateCache(@NotNull MapLoader loader, int maxTemplates, long maxResidentBytes) {
+        this.loader = loader;
+        this.maxTemplates = maxTemplates;
+        this.maxResidentBytes = maxResidentBytes;
+
+        this.hitCounter = Counter.builder("gamesdk.map_cache.hits")
+                .description("The amount of times a map was already loaded when a game needed it")
+                .register(Metrics.globalRegistry);
+        this.evictionCounter = Counter.builder("gamesdk.map_cache.evictions")
+                .description("The amount of maps unloaded to make room for others")
+                .register(Metrics.globalRegistry);
+        this.loadTimer = Timer.builder("gamesdk.map_cache.loads")
+                .description("The time taken to load maps that weren't in the cache")
+                .register(Metrics.globalRegistry);
+        Gauge.builder("gamesdk.map_cache.resident_bytes", this, MapTemplateCache::getResidentBytes)
+                .baseUnit("bytes")
+                .description("The estimated memory used by the loaded maps")
+                .register(Metrics.globalRegistry);
+        Gauge.builder("gamesdk.map_cache.templates", this, MapTemplateCache::getTemplateCount)
+                .description("The amount of maps currently loaded")
+                .register(Metrics.globalRegistry);
+    }
+
+    /**
+     * Creates an instance that shares the map's chunks, loading the map if it isn't loaded. Changes made to the
+     * instance's blocks are visible to every other game on the same map, so this is only for games that don't change
+     * the map.
+     */
+    public @NotNull SharedInstance createSharedInstance(@NotNull String mapId) {
+        while (true) {
+            CompletableFuture<Template> future = this.getTemplateFuture(mapId);
+            InstanceContainer template = future.join().container();
+
+            // Shared instances keep the template from being evicted, so it has to still be in the cache when the
+            // instance is created, and both have to happen under the lock
+            SharedInstance instance = null;
+            synchronized (this.lock) {
+                if (this.templates.get(mapId) == future) {
+                    instance = MinecraftServer.getInstanceManager().createSharedInstance(template);
+                }
+            }
+
+            if (instance != null) {
+                // Only evict once the instance exists, so a newly loaded template can't be evicted before it's used
+                this.evictIfNeeded();
+                return instance;
+            }
+            // It was evicted or invalidated after we got it, so get it again
+        }
+    }
+
+    /**
+     * Creates a new instance with a copy of the map's chunks, loading the map if it isn't loaded. The instance is
+     * registered, and must be unregistered by the game when it's done with it.
+     */
+    public @NotNull InstanceContainer createCopy(@NotNull String mapId) {
+        InstanceContainer copy = this.getTemplateFuture(mapId).join().container().copy();
+        MinecraftServer.getInstanceManager().registerInstance(copy);
+        this.evictIfNeeded();
+        return copy;
+    }
+
+    // Gets the template from the cache, loading it if it isn't there. The returned future is always complete.
+    // Callers should evict once they're done with the template, as that isn't done here.
+    private @NotNull CompletableFuture<Template> getTemplateFuture(@NotNull String mapId) {
+        this.releaseRetired();
+
+        CompletableFuture<Template> future;
+        boolean load = false;
+
+        synchronized (this.lock) {
+            future = this.templates.get(mapId);
+            if (future == null) {
+                future = new CompletableFuture<>();
+                this.templates.put(mapId, future);
+                load = true;
+            }
+        }
+
+        if (!load) {
+            this.hitCounter.increment();
+            // If another thread is loading it, wait for that instead of loading it again
+            future.join();
+            return future;
+        }
+
+        try {
+            Template template = this.load(mapId);
+            future.complete(template);
+        } catch (Exception exception) {
+            synchronized (this.lock) {
+                this.templates.remove(mapId, future);
+            }
+            future.completeExceptionally(exception);
+            throw new CompletionException("Failed to load map " + mapId, exception);
+        }
+        return future;
+    }
+
+    private @NotNull Template load(@NotNull String mapId) throws Exception {
+        long start = System.nanoTime();
+        InstanceContainer container = this.loader.load(mapId);
+        MinecraftServer.getInstanceManager().registerInstance(container);
+        this.loadTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+        long size = estimateSize(container);
+        synchronized (this.lock) {
+            this.residentBytes += size;
+        }
+        LOGGER.info("Loaded map {} into the template cache ({} bytes estimated)", mapId, size);
+        return new Template(container, size);
+    }
+
+    private void evictIfNeeded() {
+        List<Template> evicted = new ArrayList<>();
+
+        synchronized (this.lock) {
+            Iterator<Map.Entry<String, CompletableFuture<Template>>> iterator = this.templates.entrySet().iterator();
+            while (this.isOverLimit() && iterator.hasNext()) {
+                CompletableFuture<Template> future = iterator.next().getValue();
+                // Still loading, so it's not counted yet anyway
+                if (!future.isDone() || future.isCompletedExceptionally()) continue;
+
+                Template template = future.join();
+                if (!template.container().getSharedInstances().isEmpty()) continue;
+
+                iterator.remove();
+                this.residentBytes -= template.size();
+                evicted.add(template);
+            }
+        }
+
+        for (Template template : evicted) {
+            this.evictionCounter.increment();
+            MinecraftServer.getInstanceManager().unregisterInstance(template.container());
+        }
+    }
+
+    private boolean isOverLimit() {
+        return this.templates.size() > this.maxTemplates || this.residentBytes > this.maxResidentBytes;
+    }
+
+    /**
+     * Unloads the map, e.g. because it has been updated, so the next game on it gets it loaded again. Instances already
+     * created from it are unaffected. If it still has shared instances, it stays loaded until the last of them has
+     * been unregistered, but it is never handed out again.
+     */
+    public void invalidate(@NotNull String mapId) {
+        CompletableFuture<Template> future;
+        synchronized (this.lock) {
+            future = this.templates.get(mapId);
+            if (future == null || !future.isDone() || future.isCompletedExceptionally()) return;
+
+            this.templates.remove(mapId);
+            if (!future.join().container().getSharedInstances().isEmpty()) {
+                this.retired.add(future.join());
+                return;
+            }
+            this.residentBytes -= future.join().size();
+        }
+        MinecraftServer.getInstanceManager().unregisterInstance(future.join().container());
+    }
+
+    // Unloads the invalidated templates whose shared instances have all been unregistered
+    private void releaseRetired() {
+        List<Template> released = new ArrayList<>();
+        synchronized (this.lock) {
+            if (this.retired.isEmpty()) return;
+
+            Iterator<Template> iterator = this.retired.iterator();
+            while (iterator.hasNext()) {
+                Template template = iterator.next();
+                if (!template.container().getSharedInstances().isEmpty()) continue;
+
+                iterator.remove();
+                this.residentBytes -= template.size();
+                released.add(template);
+            }
+        }
+
+        for (Template template : released) {
+            MinecraftServer.getInstanceManager().unregisterInstance(template.container());
+        }
+    }
+
+    private double getResidentBytes() {
+        synchronized (this.lock) {
+            return this.residentBytes;
+        }
+    }
+
+    private double getTemplateCount() {
+        synchronized (this.lock) {
+            return this.templates.size();
+        }
+    }
+
+    private static long estimateSize(@NotNull InstanceContainer container) {
+        long sections = 0;
+        for (Chunk chunk : container.getChunks()) {
+            sections += chunk.getSections().size();
+        }
+        return sections * ESTIMATED_SECTION_BYTES;
+    }
+
+    private record Template(@NotNull InstanceContainer container, long size) {
+    }
+}
@@ -0,0 +1,104 @@
+package dev.emortal.minestom.gamesdk.region;
+
+import net.minestom.server.coordinate.Point;
+import net.minestom.server.coordinate.Vec;
+import net.minestom.server.entity.Entity;
+import net.minestom.server.entity.Player;
+import net.minestom.server.instance.Instance;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * An area of a shared instance that has been given to a single game by a {@link RegionAllocator}.
+ *
+ * <p>
+ * The area covers every height, and spans from the minimum X and Z (inclusive) to the maximum X and Z (exclusive).
+ */
+public final class GameRegion {
+
+    private final @NotNull Instance instance;
+    private final int slot;
+    private final int minX;
+    private final int minZ;
+    private final int maxX;
+    private final int maxZ;
+
+    GameRegion(@NotNull Instance instance, int slot, int minX, int minZ, int maxX, int maxZ) {
+        this.instance = instance;
+        this.slot = slot;
+        this.minX = minX;
+        this.minZ = minZ;
+        this.maxX = maxX;
+        this.maxZ = maxZ;
+    }
+
+    public @NotNull Instance getInstance() {
+        return this.instance;
+    }
+
+    /**
+     * Gets the corner of the region with the lowest X and Z. Games should build their arena relative to this.
+     */
+    public @NotNull Vec getOrigin() {
+        return new Vec(this.minX, 0, this.minZ);
+    }
+
+    public @NotNull Vec getCenter() {
+        return new Vec((this.minX + this.maxX) / 2.0, 0, (this.minZ + this.maxZ) / 2.0);
+    }
+
+    public boolean contains(@NotNull Point point) {
+        return point.x() >= this.minX && point.x() < this.maxX && point.z() >= this.minZ && point.z() < this.maxZ;
+    }
+
+    public boolean contains(@NotNull Instance instance, @NotNull Point point) {
+        return instance == this.instance && this.contains(point);
+    }
+
+    public boolean contains(@NotNull Entity entity) {
+        Instance instance = entity.getInstance();
+        return instance != null && this.contains(instance, entity.getPosition());
+    }
+
+    /**
+     * Makes the player only see, and only be seen by, entities in this region, so that players in the other games in the
+     * instance are hidden from them. This should be called when the player joins the game.
+     */
+    public void applyViewRules(@NotNull Player player) {
+        player.updateViewableRule(this::contains);
+        player.updateViewerRule(this::contains);
+    }
+
+    /**
+     * Removes the rules added by {@link #applyViewRules(Player)}. This should be called when the player leaves the game,
+     * if they are staying on the server.
+     */
+    public static void clearViewRules(@NotNull Player player) {
+        player.updateViewableRule(null);
+        player.updateViewerRule(null);
+    }
+
+    int getSlot() {
+        return this.slot;
+    }
+
+    public int getMinX() {
+        return this.minX;
+    }
+
+    public int getMinZ() {
+        return this.minZ;
+    }
+
+    public int getMaxX() {
+        return this.maxX;
+    }
+
+    public int getMaxZ() {
+        return this.maxZ;
+    }
+
+    @Override
+    public String toString() {
+        return "GameRegion{slot=" + this.slot + ", minX=" + this.minX + ", minZ=" + this.minZ + ", maxX=" + this.maxX + ", maxZ=" + this.maxZ + "}";
+    }
+}
@@ -0,0 +1,113 @@
+package dev.emortal.minestom.gamesdk.region;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import net.minestom.server.instance.Instance;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.BitSet;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Splits one instance into equally sized regions, so that lots of small games (e.g. duels) can be played in a single
+ * instance instead of each having its own, sharing its chunk storage and tick.
+ *
+ * <p>
+ * Regions are laid out on a grid of chunk aligned slots, with padding between them. The padding should be at least the
+ * server's view distance, so that players can't see the blocks of neighbouring games. Released slots are reused, lowest
+ * first, so the games stay packed around the origin.
+ *
+ * <p>
+ * The game's own event node only checks that events are in its instance, which the games all share. Games should add a
+ * child node filtered by {@link dev.emortal.minestom.gamesdk.util.GameEventPredicates#inGameRegion} and listen on that,
+ * and call {@link GameRegion#applyViewRules} for each player, so the games can't see or affect each other.
+ */
+public final class RegionAllocator {
+    // How many slots there are in each row of the grid before starting a new row
+    private static final int COLUMNS = 32;
+
+    // Every allocator that hasn't been closed, so one gauge can report the regions allocated across all of them
+    private static final @NotNull Set<RegionAllocator> ALLOCATORS = ConcurrentHashMap.newKeySet();
+
+    static {
+        Gauge.builder("gamesdk.region_allocator.allocated", ALLOCATORS, RegionAllocator::getTotalAllocatedCount)
+                .description("The amount of regions currently allocated to games")
+                .register(Metrics.globalRegistry);
+    }
+
+    private final @NotNull Instance instance;
+    private final int regionSize;
+    private final int stride;
+
+    // All guarded by this
+    private final @NotNull PriorityQueue<Integer> releasedSlots = new PriorityQueue<>();
+    private final @NotNull BitSet allocatedSlots = new BitSet();
+    private int nextSlot = 0;
+
+    /**
+     * @param instance      the instance to allocate regions in
+     * @param regionChunks  the width and depth of each region, in chunks
+     * @param paddingChunks the gap between regions, in chunks
+     */
+    public RegionAllocator(@NotNull Instance instance, int regionChunks, int paddingChunks) {
+        if (regionChunks <= 0) throw new IllegalArgumentException("Regions must be at least one chunk");
+        if (paddingChunks < 0) throw new IllegalArgumentException("Padding can't be negative");
+
+        this.instance = instance;
+        this.regionSize = regionChunks * 16;
+        this.stride = (regionChunks + paddingChunks) * 16;
+
+        ALLOCATORS.add(this);
+    }
+
+    public synchronized @NotNull GameRegion allocate() {
+        Integer released = this.releasedSlots.poll();
+        int slot = released != null ? released : this.nextSlot++;
+        this.allocatedSlots.set(slot);
+
+        int minX = (slot % COLUMNS) * this.stride;
+        int minZ = (slot / COLUMNS) * this.stride;
+        return new GameRegion(this.instance, slot, minX, minZ, minX + this.regionSize, minZ + this.regionSize);
+    }
+
+    /**
+     * Releases the region so it can be given to another game. The game must have cleared what it built in the region, or
+     * the next game will have to.
+     *
+     * @throws IllegalArgumentException if the region isn't from this allocator, or has already been released
+     */
+    public synchronized void release(@NotNull GameRegion region) {
+        if (region.getInstance() != this.instance) throw new IllegalArgumentException("Region is not from this allocator");
+        // Releasing twice would put the slot in the free list twice, and two games would be given the same region
+        if (!this.allocatedSlots.get(region.getSlot())) throw new IllegalArgumentException("Region has already been released: " + region);
+
+        this.allocatedSlots.clear(region.getSlot());
+        this.releasedSlots.add(region.getSlot());
+    }
+
+    public synchronized int getAllocatedCount() {
+        return this.allocatedSlots.cardinality();
+    }
+
+    /**
+     * Stops reporting this allocator's regions in the metrics. This should be called once the instance is no longer
+     * being used for games.
+     */
+    public void close() {
+        ALLOCATORS.remove(this);
+    }
+
+    private static double getTotalAllocatedCount(@NotNull Set<RegionAllocator> allocators) {
+        int count = 0;
+        for (RegionAllocator allocator : allocators) {
+            count += allocator.getAllocatedCount();
+        }
+        return count;
+    }
+
+    public @NotNull Instance getInstance() {
+        return this.instance;
+    }
+}
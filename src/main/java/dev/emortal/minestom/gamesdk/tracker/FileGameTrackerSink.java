@@ -0,0 +1,95 @@
+package dev.emortal.minestom.gamesdk.tracker;
+
+import com.google.protobuf.AbstractMessage;
+import com.google.protobuf.Any;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * Appends messages to a local file, so that what the tracker published can be inspected or replayed later.
+ *
+ * <p>
+ * Each message is packed in an {@link Any} and written as the length of the packed message followed by its bytes.
+ * Use {@link #replay(Path, Consumer)} to read the messages back.
+ */
+public final class FileGameTrackerSink implements GameTrackerSink {
+    private static final Logger LOGGER = LoggerFactory.getLogger(FileGameTrackerSink.class);
+
+    private final @NotNull DataOutputStream output;
+
+    public FileGameTrackerSink(@NotNull Path path) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) Files.createDirectories(parent);
+
+        this.output = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(path, StandardOpenOption.CREATE, StandardOpenOption.APPEND)));
+    }
+
+    @Override
+    public @NotNull CompletableFuture<Void> publish(@NotNull AbstractMessage message) {
+        return this.publishBatch(List.of(message));
+    }
+
+    @Override
+    public synchronized @NotNull CompletableFuture<Void> publishBatch(@NotNull List<? extends AbstractMessage> messages) {
+        try {
+            for (AbstractMessage message : messages) {
+                this.write(message);
+            }
+            // Only flush once for the whole batch. Once it's flushed, the messages are acknowledged.
+            this.output.flush();
+            return CompletableFuture.completedFuture(null);
+        } catch (IOException exception) {
+            return CompletableFuture.failedFuture(exception);
+        }
+    }
+
+    private void write(@NotNull AbstractMessage message) throws IOException {
+        byte[] bytes = Any.pack(message).toByteArray();
+        this.output.writeInt(bytes.length);
+        this.output.write(bytes);
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            this.output.close();
+        } catch (IOException exception) {
+            LOGGER.error("Failed to close tracker sink file", exception);
+        }
+    }
+
+    /**
+     * Reads back every message written to the given file, in the order they were written.
+     */
+    public static void replay(@NotNull Path path, @NotNull Consumer<Any> consumer) throws IOException {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            while (true) {
+                int length;
+                try {
+                    length = input.readInt();
+                } catch (EOFException exception) {
+                    return; // reached the end of the file
+                }
+
+                byte[] bytes = new byte[length];
+                input.readFully(bytes);
+                consumer.accept(Any.parseFrom(bytes));
+            }
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package dev.emortal.minestom.gamesdk.tracker;
+
+import com.google.protobuf.AbstractMessage;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Where the game tracker's messages are published to.
+ *
+ * <p>
+ * Messages are always published in order from a single thread, so implementations don't need to be thread safe
+ * for publishing, only for anything else they expose (e.g. reading back what was published).
+ *
+ * <p>
+ * Publishing is acknowledged: the returned future completes once the message is durably published (e.g. the broker
+ * has acknowledged it), and completes exceptionally if it couldn't be. Messages are only removed from the outbox once
+ * they are acknowledged, and are published again if they fail, so a sink may see the same message more than once.
+ */
+public interface GameTrackerSink {
+
+    @NotNull CompletableFuture<Void> publish(@NotNull AbstractMessage message);
+
+    /**
+     * Publishes multiple messages at once, in order. Sinks that can write multiple messages more efficiently than
+     * one at a time should override this.
+     *
+     * @return a future that completes once every message is acknowledged
+     */
+    default @NotNull CompletableFuture<Void> publishBatch(@NotNull List<? extends AbstractMessage> messages) {
+        CompletableFuture<?>[] futures = new CompletableFuture[messages.size()];
+        for (int i = 0; i < futures.length; i++) {
+            futures[i] = this.publish(messages.get(i));
+        }
+        return CompletableFuture.allOf(futures);
+    }
+
+    /**
+     * Called when the server is shutting down, once the outbox has stopped publishing to this sink, so this is never
+     * called while a publish is in progress.
+     */
+    default void close() {
+    }
+}
@@ -0,0 +1,76 @@
+package dev.emortal.minestom.gamesdk.tracker;
+
+import com.google.protobuf.AbstractMessage;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Keeps the most recently published messages in a fixed size ring buffer, overwriting the oldest when it is full.
+ *
+ * <p>
+ * This is intended for tests and benchmarks, where the tracker needs to run without a broker.
+ */
+public final class InMemoryGameTrackerSink implements GameTrackerSink {
+
+    private final @NotNull AbstractMessage[] messages;
+    private int nextIndex = 0;
+    private long publishedCount = 0;
+
+    public InMemoryGameTrackerSink(int capacity) {
+        if (capacity <= 0) throw new IllegalArgumentException("Capacity must be positive");
+        this.messages = new AbstractMessage[capacity];
+    }
+
+    @Override
+    public synchronized @NotNull CompletableFuture<Void> publish(@NotNull AbstractMessage message) {
+        this.add(message);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public synchronized @NotNull CompletableFuture<Void> publishBatch(@NotNull List<? extends AbstractMessage> messages) {
+        for (AbstractMessage message : messages) {
+            this.add(message);
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    private void add(@NotNull AbstractMessage message) {
+        this.messages[this.nextIndex] = message;
+        this.nextIndex = (this.nextIndex + 1) % this.messages.length;
+        this.publishedCount++;
+    }
+
+    /**
+     * Gets the messages currently in the buffer, from oldest to newest.
+     */
+    public synchronized @NotNull List<AbstractMessage> getMessages() {
+        int size = (int) Math.min(this.publishedCount, this.messages.length);
+        List<AbstractMessage> result = new ArrayList<>(size);
+
+        // If the buffer hasn't filled up yet, the oldest message is at the start, otherwise it's the next to be overwritten
+        int start = this.publishedCount < this.messages.length ? 0 : this.nextIndex;
+        for (int i = 0; i < size; i++) {
+            result.add(this.messages[(start + i) % this.messages.length]);
+        }
+        return result;
+    }
+
+    /**
+     * Gets the total amount of messages published, including ones that have since been overwritten.
+     */
+    public synchronized long getPublishedCount() {
+        return this.publishedCount;
+    }
+
+    public synchronized void clear() {
+        for (int i = 0; i < this.messages.length; i++) {
+            this.messages[i] = null;
+        }
+        this.nextIndex = 0;
+        this.publishedCount = 0;
+    }
+}
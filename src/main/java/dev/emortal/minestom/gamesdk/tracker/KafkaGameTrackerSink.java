@@ -0,0 +1,68 @@
+package dev.emortal.minestom.gamesdk.tracker;
+
+import com.google.protobuf.AbstractMessage;
+import dev.emortal.api.utils.kafka.FriendlyKafkaProducer;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Publishes messages to Kafka. This is the sink used when none is configured and messaging is available.
+ *
+ * <p>
+ * The Kafka producer already batches the records it sends, so each message in a batch is handed to it in order, and
+ * the returned future completes once the broker has acknowledged every record in it. The outbox waits for that future,
+ * up to its ack timeout, before sending the next batch, which is what gives it backpressure from the broker.
+ */
+public final class KafkaGameTrackerSink implements GameTrackerSink {
+    private static final Executor ACK_EXECUTOR = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final @NotNull FriendlyKafkaProducer producer;
+
+    public KafkaGameTrackerSink(@NotNull FriendlyKafkaProducer producer) {
+        this.producer = producer;
+    }
+
+    @Override
+    public @NotNull CompletableFuture<Void> publish(@NotNull AbstractMessage message) {
+        return this.publishBatch(List.of(message));
+    }
+
+    @Override
+    public @NotNull CompletableFuture<Void> publishBatch(@NotNull List<? extends AbstractMessage> messages) {
+        List<CompletableFuture<?>> acks = new ArrayList<>(messages.size());
+        try {
+            // Send everything before waiting, so the producer can put the whole batch in as few requests as possible
+            for (AbstractMessage message : messages) {
+                acks.add(toCompletableFuture(this.producer.produce(message)));
+            }
+        } catch (RuntimeException exception) {
+            return CompletableFuture.failedFuture(exception);
+        }
+        // Never blocks, so the outbox's ack timeout applies, and a stalled broker can't hold the outbox up forever
+        return CompletableFuture.allOf(acks.toArray(CompletableFuture[]::new));
+    }
+
+    private static @NotNull CompletableFuture<?> toCompletableFuture(@NotNull Future<?> ack) {
+        if (ack instanceof CompletableFuture<?> future) return future;
+
+        // A plain future can only be waited on, so wait for it on its own virtual thread
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return ack.get();
+            } catch (ExecutionException exception) {
+                throw new CompletionException(exception.getCause());
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                throw new CompletionException(exception);
+            }
+        }, ACK_EXECUTOR);
+    }
+}
@@ -2,14 +2,22 @@ package dev.emortal.minestom.gamesdk.util;
 
 import dev.emortal.api.model.gametracker.BasicGamePlayer;
 import net.minestom.server.entity.Player;
+import net.minestom.server.tag.Tag;
 import org.jetbrains.annotations.NotNull;
 
 public class BasicGamePlayerConverter {
+    // A player's UUID and username can't change during their session, so we only need to convert each player once
+    private static final Tag<BasicGamePlayer> CACHED_PLAYER_TAG = Tag.Transient("gamesdk:basic_game_player");
 
     public static @NotNull BasicGamePlayer fromMinestomPlayer(@NotNull Player player) {
-        return BasicGamePlayer.newBuilder()
+        BasicGamePlayer cached = player.getTag(CACHED_PLAYER_TAG);
+        if (cached != null) return cached;
+
+        BasicGamePlayer converted = BasicGamePlayer.newBuilder()
                 .setId(player.getUuid().toString())
                 .setUsername(player.getUsername())
                 .build();
+        player.setTag(CACHED_PLAYER_TAG, converted);
+        return converted;
     }
 }
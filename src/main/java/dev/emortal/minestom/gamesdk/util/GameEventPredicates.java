@@ -4,8 +4,12 @@ import dev.emortal.minestom.gamesdk.config.GameCreationInfo;
 import java.util.function.Predicate;
 
 import dev.emortal.minestom.gamesdk.game.Game;
+import dev.emortal.minestom.gamesdk.region.GameRegion;
+import dev.emortal.minestom.gamesdk.region.RegionAllocator;
 import net.minestom.server.entity.Player;
 import net.minestom.server.event.Event;
+import net.minestom.server.event.trait.BlockEvent;
+import net.minestom.server.event.trait.EntityEvent;
 import net.minestom.server.event.trait.InstanceEvent;
 import net.minestom.server.event.trait.PlayerEvent;
 import org.jetbrains.annotations.NotNull;
@@ -39,6 +43,39 @@ public final class GameEventPredicates {
         };
     }
 
+    /**
+     * Like {@link #inGame(Game)}, but for games that share their instance with other games, using a region allocated by a
+     * {@link RegionAllocator} instead of the instance to tell them apart.
+     *
+     * <p>
+     * Player events are allowed through if the player is in the game and, if it's an instance event, in the region.
+     * Block and entity events without a player are allowed through if the block or entity is in the region, and other
+     * instance events are allowed through if they are for the region's instance.
+     */
+    public static @NotNull Predicate<Event> inGameRegion(@NotNull Game game, @NotNull GameRegion region) {
+        return event -> {
+            if (event instanceof PlayerEvent playerEvent) {
+                Player player = playerEvent.getPlayer();
+                if (!game.getPlayers().contains(player)) return false;
+
+                if (event instanceof InstanceEvent) {
+                    return region.contains(player);
+                } else {
+                    return true;
+                }
+            }
+
+            if (event instanceof InstanceEvent instanceEvent) {
+                if (instanceEvent.getInstance() != region.getInstance()) return false;
+                if (event instanceof BlockEvent blockEvent) return region.contains(blockEvent.getBlockPosition());
+            }
+            if (event instanceof EntityEvent entityEvent) return region.contains(entityEvent.getEntity());
+
+            // No way to filter it - allow it through as it's probably a global event
+            return true;
+        };
+    }
+
     private GameEventPredicates() {
     }
 }
@@ -3,48 +3,384 @@ package dev.emortal.minestom.gamesdk.util;
 import com.google.protobuf.Message;
 import dev.emortal.api.model.gamedata.GameDataGameMode;
 import dev.emortal.api.service.gameplayerdata.GamePlayerDataService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import org.jetbrains.annotations.ApiStatus;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
-import java.util.stream.Collectors;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToIntFunction;
 
+/**
+ * Gets players' data for a game mode from the game player data service, caching it so that it is only loaded once per
+ * player while they are playing.
+ *
+ * <p>
+ * Cached data expires after the TTL, and the least recently used data is evicted when the cache is full. Repositories
+ * registered in the {@link dev.emortal.minestom.gamesdk.config.GameSdkConfig} are prefetched for all of a match's
+ * players as soon as the match is created, so the data is usually already loaded by the time the players spawn.
+ * Prefetching always loads the data again, and the players' data is removed from the cache when their game finishes,
+ * so a match never gets data cached during an earlier one, which may have been changed on another server since.
+ *
+ * <p>
+ * If the repository has a {@link GamePlayerDataWriter}, games can also update players' data with
+ * {@link #updatePlayerData(UUID, Message)}. Updates are buffered and written in batches in the background, and the
+ * buffer is flushed when a game finishes and when the server shuts down, so games don't have to write each player's
+ * data themselves. Every repository with a writer is registered for this when it's created, whether or not it's in the
+ * config, and stays registered until it's {@link #close() closed}. Repositories with a writer should be created once
+ * (e.g. when the game mode starts up), or closed when the game that created them is done with them.
+ */
 @SuppressWarnings("unused")
 public class GamePlayerDataRepository<T extends Message> {
+    public static final Duration DEFAULT_TTL = Duration.ofMinutes(10);
+    public static final int DEFAULT_MAX_SIZE = 1024;
+
+    private static final ExecutorService LOAD_EXECUTOR = Executors.newVirtualThreadPerTaskExecutor();
+    // Every repository with a writer that hasn't been closed, so they can all be flushed when games finish and the
+    // server stops
+    private static final Set<GamePlayerDataRepository<?>> WRITABLE_REPOSITORIES = ConcurrentHashMap.newKeySet();
+    // The repositories of each game mode, which the game mode's gauges add up, as there can be more than one per game
+    // mode. Weak, so repositories without a writer never need to be closed.
+    private static final Map<GameDataGameMode, Set<GamePlayerDataRepository<?>>> GAME_MODE_REPOSITORIES = new ConcurrentHashMap<>();
+
     private final @Nullable GamePlayerDataService gamePlayerDataService;
 
     private final @NotNull T defaultData;
     private final @NotNull Class<T> playerDataClass;
     private final @NotNull GameDataGameMode gameMode;
 
+    private final @Nullable PlayerDataWriteBuffer<T> writeBuffer;
+
+    private final long ttlNanos;
+    // In access order, so that the least recently used data is evicted first. Guarded by itself.
+    private final @NotNull LinkedHashMap<UUID, CacheEntry<T>> cache;
+
+    private final @NotNull Counter hitCounter;
+    private final @NotNull Counter missCounter;
+    private final @NotNull Timer loadTimer;
+
     public GamePlayerDataRepository(@Nullable GamePlayerDataService gamePlayerDataService, @NotNull T defaultData, @NotNull Class<T> playerDataClass, @NotNull GameDataGameMode gameMode) {
+        this(gamePlayerDataService, defaultData, playerDataClass, gameMode, DEFAULT_TTL, DEFAULT_MAX_SIZE);
+    }
+
+    public GamePlayerDataRepository(@Nullable GamePlayerDataService gamePlayerDataService, @NotNull T defaultData, @NotNull Class<T> playerDataClass,
+                                    @NotNull GameDataGameMode gameMode, @NotNull Duration ttl, int maxSize) {
+        this(gamePlayerDataService, defaultData, playerDataClass, gameMode, ttl, maxSize, null);
+    }
+
+    /**
+     * @param writer writes the updates made with {@link #updatePlayerData(UUID, Message)}, or null if the data is read only
+     */
+    public GamePlayerDataRepository(@Nullable GamePlayerDataService gamePlayerDataService, @NotNull T defaultData, @NotNull Class<T> playerDataClass,
+                                    @NotNull GameDataGameMode gameMode, @NotNull Duration ttl, int maxSize,
+                                    @Nullable GamePlayerDataWriter<T> writer) {
         this.gamePlayerDataService = gamePlayerDataService;
+        this.writeBuffer = writer != null ? new PlayerDataWriteBuffer<>(writer, gameMode) : null;
         this.defaultData = defaultData;
         this.playerDataClass = playerDataClass;
         this.gameMode = gameMode;
+        this.ttlNanos = ttl.toNanos();
+        this.cache = new LinkedHashMap<>(16, 0.75F, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, CacheEntry<T>> eldest) {
+                return this.size() > maxSize;
+            }
+        };
+
+        String gameModeTag = gameMode.name();
+        this.hitCounter = Counter.builder("gamesdk.player_data.requests")
+                .tag("gameMode", gameModeTag)
+                .tag("result", "hit")
+                .description("The amount of player data requests, by whether the data was already cached or being loaded")
+                .register(Metrics.globalRegistry);
+        this.missCounter = Counter.builder("gamesdk.player_data.requests")
+                .tag("gameMode", gameModeTag)
+                .tag("result", "miss")
+                .description("The amount of player data requests, by whether the data was already cached or being loaded")
+                .register(Metrics.globalRegistry);
+        this.loadTimer = Timer.builder("gamesdk.player_data.load_time")
+                .tag("gameMode", gameModeTag)
+                .description("The time taken to load player data from the game player data service")
+                .register(Metrics.globalRegistry);
+        GAME_MODE_REPOSITORIES.computeIfAbsent(gameMode, GamePlayerDataRepository::registerGauges).add(this);
+
+        if (this.writeBuffer != null) WRITABLE_REPOSITORIES.add(this);
     }
 
-    public @NotNull T getPlayerData(@NotNull UUID playerId) {
-        if (this.gamePlayerDataService == null) return this.defaultData;
+    private static @NotNull Set<GamePlayerDataRepository<?>> registerGauges(@NotNull GameDataGameMode gameMode) {
+        Set<GamePlayerDataRepository<?>> repositories = Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
+
+        Gauge.builder("gamesdk.player_data.cache_size", repositories, set -> sum(set, GamePlayerDataRepository::cacheSize))
+                .tag("gameMode", gameMode.name())
+                .description("The amount of players whose data is cached")
+                .register(Metrics.globalRegistry);
+        Gauge.builder("gamesdk.player_data.pending_writes", repositories, set -> sum(set, GamePlayerDataRepository::pendingWrites))
+                .tag("gameMode", gameMode.name())
+                .description("The amount of players with updates waiting to be written")
+                .register(Metrics.globalRegistry);
+        return repositories;
+    }
+
+    private static double sum(@NotNull Set<GamePlayerDataRepository<?>> repositories, @NotNull ToIntFunction<GamePlayerDataRepository<?>> value) {
+        synchronized (repositories) {
+            int sum = 0;
+            for (GamePlayerDataRepository<?> repository : repositories) {
+                sum += value.applyAsInt(repository);
+            }
+            return sum;
+        }
+    }
 
-        T playerData = this.gamePlayerDataService.getGameData(this.gameMode, this.playerDataClass, playerId);
-        return playerData != null ? playerData : this.defaultData;
+    private int cacheSize() {
+        synchronized (this.cache) {
+            return this.cache.size();
+        }
+    }
+
+    private int pendingWrites() {
+        return this.writeBuffer != null ? this.writeBuffer.pendingCount() : 0;
+    }
+
+    /**
+     * Gets every repository with a writer that hasn't been closed, including ones that aren't in the config.
+     */
+    @ApiStatus.Internal
+    public static @NotNull Collection<GamePlayerDataRepository<?>> getWritableRepositories() {
+        return Collections.unmodifiableSet(WRITABLE_REPOSITORIES);
     }
 
+    /**
+     * Gets the player's data, blocking if it isn't cached.
+     */
+    public @NotNull T getPlayerData(@NotNull UUID playerId) {
+        return join(this.getPlayerDataAsync(playerId));
+    }
+
+    /**
+     * Gets the data of each of the players, blocking if any of it isn't cached.
+     */
     public @NotNull Map<UUID, T> getPlayerData(@NotNull Set<UUID> playerIds) {
-        if (this.gamePlayerDataService == null)
-            return playerIds.stream().collect(Collectors.toMap(id -> id, id -> this.defaultData));
+        return join(this.getPlayerDataAsync(playerIds));
+    }
+
+    public @NotNull CompletableFuture<T> getPlayerDataAsync(@NotNull UUID playerId) {
+        return this.getPlayerDataAsync(Set.of(playerId)).thenApply(data -> data.get(playerId));
+    }
+
+    /**
+     * Gets the data of each of the players. Any that isn't cached is loaded in a single request to the service.
+     */
+    public @NotNull CompletableFuture<Map<UUID, T>> getPlayerDataAsync(@NotNull Set<UUID> playerIds) {
+        return this.getPlayerDataAsync(playerIds, false);
+    }
+
+    /**
+     * @param reload whether to load the data again even if it's cached. Data that is already being loaded isn't loaded
+     *               again, as it's about to be up to date anyway.
+     */
+    private @NotNull CompletableFuture<Map<UUID, T>> getPlayerDataAsync(@NotNull Set<UUID> playerIds, boolean reload) {
+        if (this.gamePlayerDataService == null) {
+            Map<UUID, T> result = new HashMap<>();
+            for (UUID playerId : playerIds) {
+                result.put(playerId, this.defaultData);
+            }
+            return CompletableFuture.completedFuture(result);
+        }
+
+        Map<UUID, CompletableFuture<T>> futures = new HashMap<>();
+        Map<UUID, CompletableFuture<T>> toLoad = new HashMap<>();
+
+        long now = System.nanoTime();
+        synchronized (this.cache) {
+            for (UUID playerId : playerIds) {
+                CacheEntry<T> entry = this.cache.get(playerId);
+                boolean stale = entry != null && reload && entry.future().isDone();
+                if (entry != null && !stale && !entry.isExpired(now, this.ttlNanos)) {
+                    futures.put(playerId, entry.future());
+                    continue;
+                }
+
+                CompletableFuture<T> future = new CompletableFuture<>();
+                this.cache.put(playerId, new CacheEntry<>(future, now));
+                futures.put(playerId, future);
+                toLoad.put(playerId, future);
+            }
+        }
+
+        this.hitCounter.increment(playerIds.size() - toLoad.size());
+        this.missCounter.increment(toLoad.size());
+        if (!toLoad.isEmpty()) LOAD_EXECUTOR.execute(() -> this.load(toLoad));
+
+        return CompletableFuture.allOf(futures.values().toArray(CompletableFuture[]::new)).thenApply(ignored -> {
+            Map<UUID, T> result = new HashMap<>();
+            for (Map.Entry<UUID, CompletableFuture<T>> entry : futures.entrySet()) {
+                result.put(entry.getKey(), entry.getValue().join());
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Starts loading the data of the players, without waiting for it. Any data that is already cached is loaded again,
+     * as the players may have played on another server since it was loaded.
+     */
+    public void prefetch(@NotNull Set<UUID> playerIds) {
+        this.getPlayerDataAsync(playerIds, true);
+    }
+
+    /**
+     * Removes the player's data from the cache, e.g. because it has been changed, so that it is loaded again next time.
+     */
+    public void invalidate(@NotNull UUID playerId) {
+        synchronized (this.cache) {
+            this.cache.remove(playerId);
+        }
+    }
+
+    /**
+     * Removes the players' data from the cache, e.g. because their game has finished, so that it is loaded again next
+     * time. Updates that haven't been written yet are still written, and applied to the data when it is loaded again.
+     */
+    public void invalidate(@NotNull Collection<UUID> playerIds) {
+        synchronized (this.cache) {
+            for (UUID playerId : playerIds) {
+                this.cache.remove(playerId);
+            }
+        }
+    }
+
+    /**
+     * Replaces the player's data. The data should be the player's whole new data, e.g. their current data with the
+     * changes made with {@code toBuilder()}, as it replaces their data rather than being merged into it.
+     *
+     * <p>
+     * The data is written in the background, and only the latest data for the player is written if they're updated
+     * again before then. If the player's data is cached, the cached data is replaced straight away. If it is still being
+     * loaded, it is replaced once it has loaded.
+     *
+     * @return whether the update was buffered to be written, or false if it was dropped because the write buffer is full
+     * or has been shut down
+     * @throws IllegalStateException if the repository doesn't have a writer
+     */
+    public boolean updatePlayerData(@NotNull UUID playerId, @NotNull T data) {
+        if (this.writeBuffer == null) throw new IllegalStateException("This repository is read only, as it has no writer");
+
+        // Buffered under the cache's lock, so a load finishing at the same time either sees the update in the buffer or
+        // is already in the cache for it to be replaced
+        synchronized (this.cache) {
+            if (!this.writeBuffer.update(playerId, data)) return false;
+
+            CacheEntry<T> entry = this.cache.get(playerId);
+            if (entry == null || !entry.future().isDone() || entry.future().isCompletedExceptionally()) return true;
+
+            this.cache.put(playerId, new CacheEntry<>(CompletableFuture.completedFuture(data), entry.createdTime()));
+            return true;
+        }
+    }
+
+    /**
+     * Writes all the buffered updates now, rather than waiting for the next background flush.
+     *
+     * @return a future that completes when the updates have been written, or put back in the buffer to be retried
+     */
+    public @NotNull CompletableFuture<Void> flush() {
+        if (this.writeBuffer == null) return CompletableFuture.completedFuture(null);
+        return this.writeBuffer.flush();
+    }
+
+    /**
+     * Stops writing in the background and writes all the buffered updates, waiting up to 10 seconds for them to be
+     * written. Any updates that still haven't been written are dropped, as are updates made after this.
+     *
+     * <p>
+     * The repository is unregistered, so it's no longer flushed when games finish, and its background thread stops.
+     * This is called for every repository with a writer when the server shuts down.
+     */
+    public void close() {
+        WRITABLE_REPOSITORIES.remove(this);
+        Set<GamePlayerDataRepository<?>> gameModeRepositories = GAME_MODE_REPOSITORIES.get(this.gameMode);
+        if (gameModeRepositories != null) gameModeRepositories.remove(this);
 
-        Map<UUID, T> responseData = this.gamePlayerDataService.getGameData(this.gameMode, this.playerDataClass, playerIds);
+        if (this.writeBuffer != null) this.writeBuffer.shutdown(10, TimeUnit.SECONDS);
+    }
 
-        for (Map.Entry<UUID, T> entry : responseData.entrySet()) {
-            if (entry.getValue() == null) {
-                responseData.put(entry.getKey(), this.defaultData);
+    private void load(@NotNull Map<UUID, CompletableFuture<T>> toLoad) {
+        long start = System.nanoTime();
+        Map<UUID, T> responseData;
+        try {
+            responseData = this.gamePlayerDataService.getGameData(this.gameMode, this.playerDataClass, new HashSet<>(toLoad.keySet()));
+        } catch (Exception exception) {
+            // Don't cache failures, so the next request tries again
+            synchronized (this.cache) {
+                for (Map.Entry<UUID, CompletableFuture<T>> entry : toLoad.entrySet()) {
+                    CacheEntry<T> cached = this.cache.get(entry.getKey());
+                    if (cached != null && cached.future() == entry.getValue()) this.cache.remove(entry.getKey());
+                }
             }
+            toLoad.values().forEach(future -> future.completeExceptionally(exception));
+            return;
         }
+        this.loadTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+        Map<UUID, T> loaded = new HashMap<>();
+        synchronized (this.cache) {
+            for (Map.Entry<UUID, CompletableFuture<T>> entry : toLoad.entrySet()) {
+                UUID playerId = entry.getKey();
+                T playerData = responseData.get(playerId);
+                if (playerData == null) playerData = this.defaultData;
+
+                // The service doesn't have the data that hasn't been written yet, including any updated while this was
+                // loading, and that data is newer
+                T unwritten = this.writeBuffer != null ? this.writeBuffer.getUnwritten(playerId) : null;
+                if (unwritten != null) playerData = unwritten;
+                loaded.put(playerId, playerData);
 
-        return responseData;
+                // Cache it as loaded straight away, so that updates made from now on are applied to the cached data
+                CacheEntry<T> cached = this.cache.get(playerId);
+                if (cached != null && cached.future() == entry.getValue()) {
+                    this.cache.put(playerId, new CacheEntry<>(CompletableFuture.completedFuture(playerData), cached.createdTime()));
+                }
+            }
+        }
+
+        // Completed outside the lock, as this runs whatever is waiting for the data
+        for (Map.Entry<UUID, CompletableFuture<T>> entry : toLoad.entrySet()) {
+            entry.getValue().complete(loaded.get(entry.getKey()));
+        }
+    }
+
+    private static <R> R join(@NotNull CompletableFuture<R> future) {
+        try {
+            return future.join();
+        } catch (CompletionException exception) {
+            // Throw what the service threw, as this did before the data was loaded asynchronously
+            if (exception.getCause() instanceof RuntimeException cause) throw cause;
+            throw exception;
+        }
+    }
+
+    private record CacheEntry<T>(@NotNull CompletableFuture<T> future, long createdTime) {
+
+        boolean isExpired(long now, long ttlNanos) {
+            return now - this.createdTime > ttlNanos;
+        }
     }
 }
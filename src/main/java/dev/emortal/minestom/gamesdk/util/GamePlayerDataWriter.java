@@ -0,0 +1,24 @@
+package dev.emortal.minestom.gamesdk.util;
+
+import com.google.protobuf.Message;
+import dev.emortal.api.model.gamedata.GameDataGameMode;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Persists players' data for a game mode. Used by {@link GamePlayerDataRepository} to write buffered updates in batches.
+ *
+ * <p>
+ * Writes are only ever made from a single thread, and may block. A write that throws is retried, so writes should be
+ * idempotent.
+ */
+@FunctionalInterface
+public interface GamePlayerDataWriter<T extends Message> {
+
+    /**
+     * @param playerData the latest data for each player that has been updated since the last write
+     */
+    void write(@NotNull GameDataGameMode gameMode, @NotNull Map<UUID, T> playerData) throws Exception;
+}
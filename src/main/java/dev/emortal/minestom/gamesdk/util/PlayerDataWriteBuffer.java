@@ -0,0 +1,312 @@
+package dev.emortal.minestom.gamesdk.util;
+
+import com.google.protobuf.Message;
+import dev.emortal.api.model.gamedata.GameDataGameMode;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Buffers updates to players' data and writes them in batches from a background thread.
+ *
+ * Each update is the player's whole new data, so only the latest one for each player is kept, and however many updates
+ * a player gets between flushes, they only cause one write. Updates aren't merged, as protobuf's merge can't set a field
+ * back to its default value and appends to repeated fields. The buffer is flushed every flush interval, whenever it
+ * passes its soft limit, and when a flush is requested (e.g. when a game finishes).
+ *
+ * Failed writes are retried with backoff. If every attempt fails, the data is put back in the buffer, unless the player
+ * has been updated since, to be tried again on the next flush. Updates are only dropped if the buffer reaches its hard
+ * limit, which is twice the soft limit, or if they're still pending after the final write on shutdown.
+ */
+final class PlayerDataWriteBuffer<T extends Message> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PlayerDataWriteBuffer.class);
+
+    private static final long FLUSH_INTERVAL_MILLIS = 5_000;
+    private static final int SOFT_LIMIT = 4096;
+    private static final int HARD_LIMIT = SOFT_LIMIT * 2;
+    private static final int BATCH_SIZE = 256;
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long RETRY_BACKOFF_MILLIS = 200;
+
+    private final @NotNull GamePlayerDataWriter<T> writer;
+    private final @NotNull GameDataGameMode gameMode;
+
+    // All guarded by the lock
+    private final @NotNull Object lock = new Object();
+    private @NotNull Map<UUID, T> pending = new LinkedHashMap<>();
+    // The data the worker is currently writing, which isn't pending any more but may not have been written yet
+    private @NotNull Map<UUID, T> writing = Map.of();
+    private @NotNull List<CompletableFuture<Void>> flushRequests = new ArrayList<>();
+    private boolean flushRequested = false;
+
+    private volatile boolean running = true;
+    private final @NotNull Thread worker;
+
+    private final @NotNull Counter droppedCounter;
+    private final @NotNull Counter failedCounter;
+    private final @NotNull DistributionSummary batchSizeSummary;
+    private final @NotNull Timer writeTimer;
+
+    PlayerDataWriteBuffer(@NotNull GamePlayerDataWriter<T> writer, @NotNull GameDataGameMode gameMode) {
+        this.writer = writer;
+        this.gameMode = gameMode;
+
+        String gameModeTag = gameMode.name();
+        this.droppedCounter = Counter.builder("gamesdk.player_data.dropped_updates")
+                .tag("gameMode", gameModeTag)
+                .description("The amount of player data updates dropped because the write buffer was full or shut down")
+                .register(Metrics.globalRegistry);
+        this.failedCounter = Counter.builder("gamesdk.player_data.failed_writes")
+                .tag("gameMode", gameModeTag)
+                .description("The amount of write attempts that failed")
+                .register(Metrics.globalRegistry);
+        this.batchSizeSummary = DistributionSummary.builder("gamesdk.player_data.write_batch_size")
+                .tag("gameMode", gameModeTag)
+                .description("The amount of players written in each batch")
+                .register(Metrics.globalRegistry);
+        this.writeTimer = Timer.builder("gamesdk.player_data.write_time")
+                .tag("gameMode", gameModeTag)
+                .description("The time taken to write a batch of player data, including retries")
+                .register(Metrics.globalRegistry);
+
+        this.worker = Thread.ofVirtual().name("player-data-writer-" + gameModeTag).start(this::run);
+    }
+
+    /**
+     * @param data the player's whole new data, which replaces any that is already pending for them
+     * @return whether the update was buffered, or false if it was dropped because the buffer is full or shut down
+     */
+    boolean update(@NotNull UUID playerId, @NotNull T data) {
+        synchronized (this.lock) {
+            if (!this.running) {
+                this.droppedCounter.increment();
+                LOGGER.error("Dropped player data update for {} as the write buffer has been shut down", playerId);
+                return false;
+            }
+            if (!this.pending.containsKey(playerId) && this.pending.size() >= HARD_LIMIT) {
+                this.droppedCounter.increment();
+                LOGGER.error("Dropped player data update for {} as the write buffer is full", playerId);
+                return false;
+            }
+
+            this.pending.put(playerId, data);
+            if (this.pending.size() >= SOFT_LIMIT) this.requestFlush();
+            return true;
+        }
+    }
+
+    /**
+     * Gets the player's latest data that may not have been written yet, so that data loaded while it's being written
+     * can be replaced with it.
+     *
+     * @return the player's unwritten data, or null if they have none
+     */
+    @Nullable T getUnwritten(@NotNull UUID playerId) {
+        synchronized (this.lock) {
+            T pending = this.pending.get(playerId);
+            return pending != null ? pending : this.writing.get(playerId);
+        }
+    }
+
+    /**
+     * Requests that everything pending is written now.
+     *
+     * @return a future that completes when everything that was pending has been written, or put back after failing
+     */
+    @NotNull CompletableFuture<Void> flush() {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        synchronized (this.lock) {
+            if (!this.running) {
+                future.complete(null);
+                return future;
+            }
+            this.flushRequests.add(future);
+            this.requestFlush();
+        }
+        return future;
+    }
+
+    /**
+     * Stops the background thread, then writes everything still pending from the calling thread, waiting up to the
+     * timeout. Anything that still hasn't been written after that is dropped, and logged and counted as such.
+     */
+    void shutdown(long timeout, @NotNull TimeUnit unit) {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        synchronized (this.lock) {
+            if (!this.running) return;
+            this.running = false;
+            this.lock.notifyAll();
+        }
+
+        // Let the worker finish the batch it's writing first, so that the final pass can't write the same players
+        try {
+            this.worker.join(Duration.ofNanos(Math.max(0, deadline - System.nanoTime())));
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+
+        List<CompletableFuture<Void>> requests;
+        synchronized (this.lock) {
+            requests = this.flushRequests;
+            this.flushRequests = new ArrayList<>();
+        }
+
+        if (this.worker.isAlive()) {
+            // Writes must only be made from one thread, so if the worker is stuck writing, nothing else can be written
+            LOGGER.error("Timed out waiting for the player data writer for {} to stop", this.gameMode);
+        } else {
+            this.writeRemaining(deadline);
+        }
+        requests.forEach(request -> request.complete(null));
+
+        int abandoned;
+        synchronized (this.lock) {
+            abandoned = this.pending.size();
+            this.pending = new LinkedHashMap<>();
+        }
+        if (abandoned > 0) {
+            this.droppedCounter.increment(abandoned);
+            LOGGER.error("Dropped {} players' data updates for {} as they couldn't be written before shutting down", abandoned, this.gameMode);
+        }
+    }
+
+    // The final pass on shutdown, which writes what's pending batch by batch until the deadline
+    private void writeRemaining(long deadline) {
+        Map<UUID, T> remaining;
+        synchronized (this.lock) {
+            remaining = this.pending;
+            this.pending = new LinkedHashMap<>();
+            this.writing = remaining;
+        }
+
+        for (Map<UUID, T> batch : this.toBatches(remaining)) {
+            boolean written = System.nanoTime() - deadline < 0 && !Thread.currentThread().isInterrupted()
+                    && this.writeWithRetries(batch);
+            if (!written) this.restore(batch);
+        }
+
+        synchronized (this.lock) {
+            this.writing = Map.of();
+        }
+    }
+
+    private void requestFlush() {
+        this.flushRequested = true;
+        this.lock.notifyAll();
+    }
+
+    private void run() {
+        while (true) {
+            Map<UUID, T> toWrite;
+            List<CompletableFuture<Void>> requests;
+
+            synchronized (this.lock) {
+                try {
+                    if (this.running && !this.flushRequested) this.lock.wait(FLUSH_INTERVAL_MILLIS);
+                } catch (InterruptedException exception) {
+                    break;
+                }
+                // Whatever is left is written by the final pass on shutdown
+                if (!this.running) break;
+
+                toWrite = this.pending;
+                requests = this.flushRequests;
+                this.writing = toWrite;
+                this.pending = new LinkedHashMap<>();
+                this.flushRequests = new ArrayList<>();
+                this.flushRequested = false;
+            }
+
+            try {
+                this.write(toWrite);
+            } catch (Exception exception) {
+                LOGGER.error("An error occurred while writing player data for {}", this.gameMode, exception);
+            }
+            synchronized (this.lock) {
+                this.writing = Map.of();
+            }
+            requests.forEach(request -> request.complete(null));
+        }
+    }
+
+    private void write(@NotNull Map<UUID, T> toWrite) {
+        for (Map<UUID, T> batch : this.toBatches(toWrite)) {
+            if (!this.writeWithRetries(batch)) this.restore(batch);
+        }
+    }
+
+    private @NotNull List<Map<UUID, T>> toBatches(@NotNull Map<UUID, T> toWrite) {
+        List<Map<UUID, T>> batches = new ArrayList<>();
+        List<UUID> playerIds = new ArrayList<>(toWrite.keySet());
+        for (int start = 0; start < playerIds.size(); start += BATCH_SIZE) {
+            Map<UUID, T> batch = new HashMap<>();
+            for (UUID playerId : playerIds.subList(start, Math.min(start + BATCH_SIZE, playerIds.size()))) {
+                batch.put(playerId, toWrite.get(playerId));
+            }
+            batches.add(batch);
+        }
+        return batches;
+    }
+
+    private boolean writeWithRetries(@NotNull Map<UUID, T> batch) {
+        this.batchSizeSummary.record(batch.size());
+        long start = System.nanoTime();
+
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            try {
+                this.writer.write(this.gameMode, batch);
+                this.writeTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                return true;
+            } catch (Exception exception) {
+                this.failedCounter.increment();
+                LOGGER.warn("Failed to write player data for {} (attempt {} of {})", this.gameMode, attempt, MAX_ATTEMPTS, exception);
+            }
+
+            if (attempt == MAX_ATTEMPTS) break;
+            try {
+                Thread.sleep(RETRY_BACKOFF_MILLIS << (attempt - 1));
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+
+        this.writeTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return false;
+    }
+
+    // Puts a batch that couldn't be written back, except for players who have been updated since, as that's newer
+    private void restore(@NotNull Map<UUID, T> batch) {
+        synchronized (this.lock) {
+            for (Map.Entry<UUID, T> entry : batch.entrySet()) {
+                if (this.pending.containsKey(entry.getKey())) continue;
+                if (this.pending.size() >= HARD_LIMIT) {
+                    this.droppedCounter.increment();
+                    continue;
+                }
+                this.pending.put(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    int pendingCount() {
+        synchronized (this.lock) {
+            return this.pending.size();
+        }
+    }
+}
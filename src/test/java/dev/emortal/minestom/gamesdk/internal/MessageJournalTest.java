@@ -0,0 +1,102 @@
+package dev.emortal.minestom.gamesdk.internal;
+
+import com.google.protobuf.Any;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.StringValue;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MessageJournalTest {
+    private static final int CAPACITY = 64 * 1024;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void peekDoesNotRemoveRecordsUntilAdvanced() throws IOException {
+        MessageJournal journal = new MessageJournal(this.directory.resolve("test.journal"), CAPACITY);
+        append(journal, "a", "b", "c");
+
+        MessageJournal.Batch batch = journal.peek(2);
+        assertEquals(List.of("a", "b"), values(batch.records()));
+        assertEquals(List.of("a", "b"), values(journal.peek(2).records()));
+
+        journal.advance(batch.endPosition());
+        assertEquals(List.of("c"), values(journal.peek(10).records()));
+    }
+
+    @Test
+    void advancingPastEverythingEmptiesTheJournal() throws IOException {
+        MessageJournal journal = new MessageJournal(this.directory.resolve("test.journal"), CAPACITY);
+        append(journal, "a", "b");
+
+        journal.advance(journal.peek(10).endPosition());
+        assertTrue(journal.isEmpty());
+        assertEquals(0, journal.size());
+        assertNull(journal.poll());
+    }
+
+    @Test
+    void recordsSurviveReopening() throws IOException {
+        Path path = this.directory.resolve("test.journal");
+        MessageJournal journal = new MessageJournal(path, CAPACITY);
+        append(journal, "a", "b", "c");
+        journal.advance(journal.peek(1).endPosition());
+        journal.force();
+
+        MessageJournal reopened = new MessageJournal(path, CAPACITY);
+        assertEquals(List.of("b", "c"), values(reopened.peek(10).records()));
+    }
+
+    @Test
+    void prependedMessagesAreReadFirst() throws IOException {
+        MessageJournal journal = new MessageJournal(this.directory.resolve("test.journal"), CAPACITY);
+        append(journal, "c", "d");
+
+        List<Any> overflow = journal.prepend(List.of(pack("a"), pack("b")), System.currentTimeMillis());
+        assertTrue(overflow.isEmpty());
+        assertEquals(List.of("a", "b", "c", "d"), values(journal.peek(10).records()));
+    }
+
+    @Test
+    void appendFailsOnceTheJournalIsFull() throws IOException {
+        MessageJournal journal = new MessageJournal(this.directory.resolve("test.journal"), 512);
+
+        List<String> appended = new ArrayList<>();
+        for (int i = 0; journal.append(pack(String.valueOf(i)), System.currentTimeMillis()); i++) {
+            appended.add(String.valueOf(i));
+        }
+
+        assertFalse(appended.isEmpty());
+        // What did fit is still there, in order
+        assertEquals(appended, values(journal.peek(appended.size() + 1).records()));
+    }
+
+    private static Any pack(String value) {
+        return Any.pack(StringValue.of(value));
+    }
+
+    private static void append(MessageJournal journal, String... values) {
+        for (String value : values) {
+            assertTrue(journal.append(pack(value), System.currentTimeMillis()));
+        }
+    }
+
+    private static List<String> values(List<MessageJournal.Record> records) throws InvalidProtocolBufferException {
+        List<String> values = new ArrayList<>();
+        for (MessageJournal.Record record : records) {
+            values.add(record.message().unpack(StringValue.class).getValue());
+        }
+        return values;
+    }
+}
@@ -0,0 +1,161 @@
+package dev.emortal.minestom.gamesdk.internal;
+
+import com.google.protobuf.AbstractMessage;
+import com.google.protobuf.StringValue;
+import dev.emortal.minestom.gamesdk.tracker.GameTrackerSink;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+class MessageOutboxTest {
+    private static final int QUEUE_CAPACITY = 4;
+    private static final int JOURNAL_SIZE = 64 * 1024;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void spillsToTheJournalWhenTheQueueIsFullAndPublishesInOrder() {
+        FakeSink sink = new FakeSink();
+        sink.block();
+        MessageOutbox outbox = this.createOutbox(sink);
+        outbox.start();
+
+        List<String> sent = send(outbox, 20);
+        // The worker is stuck on the first batch, so nothing can be removed from the queue
+        assertEquals(1.0, outbox.getQueueFill());
+
+        sink.unblock();
+        awaitUntil(() -> sink.published.size() == sent.size());
+        assertEquals(sent, sink.published);
+
+        outbox.shutdown();
+    }
+
+    @Test
+    void retriesFailedBatchesWithoutLosingOrDuplicatingMessages() {
+        FakeSink sink = new FakeSink();
+        sink.failuresLeft.set(3);
+        MessageOutbox outbox = this.createOutbox(sink);
+        outbox.start();
+
+        List<String> sent = send(outbox, 10);
+        awaitUntil(() -> sink.published.size() >= sent.size());
+        assertEquals(sent, sink.published);
+        assertTrue(sink.attempts.get() > 3);
+
+        outbox.shutdown();
+    }
+
+    @Test
+    void replaysWhatWasLeftAtShutdownOnTheNextStart() {
+        FakeSink unavailable = new FakeSink();
+        unavailable.block();
+        MessageOutbox outbox = this.createOutbox(unavailable);
+        outbox.start();
+
+        List<String> sent = send(outbox, 10);
+        // Gives up on the sink after the shutdown flush timeout, keeping everything in the journal
+        outbox.shutdown();
+        assertTrue(unavailable.published.isEmpty());
+        assertTrue(unavailable.closed);
+
+        FakeSink available = new FakeSink();
+        MessageOutbox restarted = this.createOutbox(available);
+        restarted.start();
+
+        awaitUntil(() -> available.published.size() == sent.size());
+        assertEquals(sent, available.published);
+
+        restarted.shutdown();
+    }
+
+    private @NotNull MessageOutbox createOutbox(@NotNull FakeSink sink) {
+        MessageOutbox outbox = new MessageOutbox("test", sink, QUEUE_CAPACITY, this.directory.resolve("test.journal"), JOURNAL_SIZE);
+        outbox.registerMessageType(StringValue.getDefaultInstance());
+        return outbox;
+    }
+
+    private static @NotNull List<String> send(@NotNull MessageOutbox outbox, int count) {
+        List<String> sent = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            String value = String.valueOf(i);
+            outbox.send(StringValue.of(value));
+            sent.add(value);
+        }
+        return sent;
+    }
+
+    private static void awaitUntil(@NotNull BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() - deadline >= 0) fail("Timed out waiting for the outbox");
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                fail("Interrupted waiting for the outbox");
+            }
+        }
+    }
+
+    /*
+     * A sink that records the messages it acknowledges, and can be made to fail or to hold acknowledgements back.
+     */
+    private static final class FakeSink implements GameTrackerSink {
+
+        final @NotNull List<String> published = new CopyOnWriteArrayList<>();
+        final @NotNull AtomicInteger failuresLeft = new AtomicInteger();
+        final @NotNull AtomicInteger attempts = new AtomicInteger();
+        volatile boolean closed = false;
+
+        private volatile @NotNull CompletableFuture<Void> available = CompletableFuture.completedFuture(null);
+
+        void block() {
+            this.available = new CompletableFuture<>();
+        }
+
+        void unblock() {
+            this.available.complete(null);
+        }
+
+        @Override
+        public @NotNull CompletableFuture<Void> publish(@NotNull AbstractMessage message) {
+            return this.publishBatch(List.of(message));
+        }
+
+        @Override
+        public @NotNull CompletableFuture<Void> publishBatch(@NotNull List<? extends AbstractMessage> messages) {
+            this.attempts.incrementAndGet();
+            if (this.failuresLeft.getAndUpdate(left -> Math.max(left - 1, 0)) > 0) {
+                return CompletableFuture.failedFuture(new IOException("The broker is unavailable"));
+            }
+
+            // Only recorded once acknowledged, so the recorded messages are exactly the ones the outbox can remove
+            return this.available.thenRun(() -> {
+                for (AbstractMessage message : messages) {
+                    this.published.add(((StringValue) message).getValue());
+                }
+            });
+        }
+
+        @Override
+        public void close() {
+            this.closed = true;
+        }
+    }
+}